@@ -0,0 +1,37 @@
+package com.dev.order;
+
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Boots the service without the web layer for database-backed benchmarks.
+ * Uses the datasource from application.yml, like OrderApplicationTests.
+ */
+public final class BenchmarkApplication {
+    public static final AuthenticatedUser BENCHMARK_CUSTOMER = new AuthenticatedUser(900_003L, UserRole.CUSTOMER);
+
+    private BenchmarkApplication() {}
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(OrderApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.com.dev.order=OFF", "logging.level.org.hibernate.SQL=OFF")
+                .properties(properties)
+                .run();
+    }
+
+    public static <T> T asUser(AuthenticatedUser user, Callable<T> work) throws Exception {
+        RequestContext.set(user);
+        try {
+            return work.call();
+        } finally {
+            RequestContext.clear();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dev.order;
+
+import com.dev.order.domain.Order;
+import com.dev.order.domain.Payment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entities shaped like rows loaded by Hibernate (ids and timestamps populated).
+ */
+public final class BenchmarkFixtures {
+    private BenchmarkFixtures() {}
+
+    public static Order order(long orderId) {
+        Order order = new Order(1L, new BigDecimal("150.0000"), "USD");
+        LocalDateTime now = LocalDateTime.now();
+        ReflectionTestUtils.setField(order, "id", orderId);
+        ReflectionTestUtils.setField(order, "createdAt", now);
+        ReflectionTestUtils.setField(order, "updatedAt", now);
+        return order;
+    }
+
+    public static Payment payment(Order order, long paymentId) {
+        Payment payment = new Payment(order, order.getTotalAmount(), order.getCurrency());
+        ReflectionTestUtils.setField(payment, "paymentId", paymentId);
+        ReflectionTestUtils.setField(payment, "createdAt", LocalDateTime.now());
+        return payment;
+    }
+}
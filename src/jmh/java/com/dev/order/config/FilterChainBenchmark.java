@@ -0,0 +1,71 @@
+package com.dev.order.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the request-id and authentication filter lambdas.
+ * The authentication filter includes the per-customer rate limit check (limits high enough to never reject).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterChainBenchmark {
+    private Filter requestIdFilter;
+    private Filter authenticationFilter;
+    private MockHttpServletRequest requestWithId;
+    private MockHttpServletRequest requestWithoutId;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        requestIdFilter = new FilterConfig(Tracer.NOOP).requestIdFilterRegistration().getFilter();
+        authenticationFilter = new AuthenticationFilterConfig((request, response, handler, ex) -> null,
+                new SimpleMeterRegistry(), true, 1e9, 1_000_000, 1e9, 1_000_000, Duration.ofMinutes(10))
+                .authenticationFilter().getFilter();
+        requestWithId = new MockHttpServletRequest("GET", "/api/v1/orders");
+        requestWithId.addHeader("X-Request-ID", "5b3f0a8e-3c41-4a38-8c2a-0d7f4f3c9b21");
+        requestWithId.addHeader("Authorization", "Bearer customer-token");
+        requestWithoutId = new MockHttpServletRequest("GET", "/api/v1/orders");
+        requestWithoutId.addHeader("Authorization", "Bearer customer-token");
+        response = new MockHttpServletResponse();
+        chain = (request, response) -> {};
+    }
+
+    @Benchmark
+    public void requestIdReused(Blackhole blackhole) throws Exception {
+        requestIdFilter.doFilter(requestWithId, response, chain);
+        blackhole.consume(response);
+    }
+
+    @Benchmark
+    public void requestIdGenerated(Blackhole blackhole) throws Exception {
+        requestIdFilter.doFilter(requestWithoutId, response, chain);
+        blackhole.consume(response);
+    }
+
+    @Benchmark
+    public void authentication(Blackhole blackhole) throws Exception {
+        authenticationFilter.doFilter(requestWithId, response, chain);
+        blackhole.consume(response);
+    }
+
+    @Benchmark
+    public void fullChain(Blackhole blackhole) throws Exception {
+        requestIdFilter.doFilter(requestWithId, response, (request, res) -> authenticationFilter.doFilter(request, res, chain));
+        blackhole.consume(response);
+    }
+}
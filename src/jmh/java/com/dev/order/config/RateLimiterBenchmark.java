@@ -0,0 +1,67 @@
+package com.dev.order.config;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the per-customer rate limit check with many live customers.
+ * Customers are picked at random, so most lookups miss the CPU cache like they would under real traffic.
+ * The limit is high enough that every call is admitted (the common path); rejected() measures the 429 path.
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.includes=RateLimiterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RateLimiterBenchmark {
+    private static final int ORDER_LENGTH = 1 << 20;
+
+    @Param({"100000"})
+    public int customers;
+
+    private RateLimiter admitting;
+    private RateLimiter rejecting;
+    private long[] customerOrder;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        admitting = new RateLimiter(1e9, 1_000_000, Duration.ofMinutes(10), 64, System::nanoTime);
+        rejecting = new RateLimiter(1, 1, Duration.ofMinutes(10), 64, System::nanoTime);
+        SplittableRandom random = new SplittableRandom(42);
+        customerOrder = new long[ORDER_LENGTH];
+        for (int i = 0; i < ORDER_LENGTH; i++) {
+            customerOrder[i] = 1 + random.nextInt(customers);
+        }
+        //Every customer has a live bucket before measuring
+        for (long customerId = 1; customerId <= customers; customerId++) {
+            admitting.tryAcquire(customerId);
+            rejecting.tryAcquire(customerId);
+        }
+    }
+
+    @Benchmark
+    public long admitted(Cursor cursor) {
+        return admitting.tryAcquire(customerOrder[cursor.next++ & (ORDER_LENGTH - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long admittedContended(Cursor cursor) {
+        return admitting.tryAcquire(customerOrder[cursor.next++ & (ORDER_LENGTH - 1)]);
+    }
+
+    @Benchmark
+    public long rejected(Cursor cursor) {
+        return rejecting.tryAcquire(customerOrder[cursor.next++ & (ORDER_LENGTH - 1)]);
+    }
+}
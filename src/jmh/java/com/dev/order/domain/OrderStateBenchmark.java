@@ -0,0 +1,25 @@
+package com.dev.order.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderState.fromString runs on every filtered listing request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderStateBenchmark {
+    @Param({"CREATED", "shipped", "UNKNOWN"})
+    private String input;
+
+    @Benchmark
+    public void fromString(Blackhole blackhole) {
+        blackhole.consume(OrderState.fromString(input));
+    }
+}
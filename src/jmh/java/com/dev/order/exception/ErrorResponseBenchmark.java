@@ -0,0 +1,60 @@
+package com.dev.order.exception;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.MDC;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Error-body construction in GlobalExceptionHandler (exception instances are pre-built,
+ * so only the handler's own allocations are measured).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ErrorResponseBenchmark {
+    private GlobalExceptionHandler handler;
+    private OrderNotFoundException orderNotFound;
+    private InvalidOrderStateException invalidOrderState;
+    private InvalidRequestException invalidRequest;
+    private RuntimeException infrastructureFailure;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler();
+        orderNotFound = new OrderNotFoundException(42L);
+        invalidOrderState = new InvalidOrderStateException("ORDER.INVALID_STATE.CANCELLATION", "Only CREATED orders can be CANCELLED.", 42L);
+        invalidRequest = new InvalidRequestException("Invalid order state");
+        infrastructureFailure = new IllegalStateException("Connection is not available");
+        MDC.put("requestId", "5b3f0a8e-3c41-4a38-8c2a-0d7f4f3c9b21");
+    }
+
+    @TearDown
+    public void tearDown() {
+        MDC.clear();
+    }
+
+    @Benchmark
+    public void orderNotFound(Blackhole blackhole) {
+        blackhole.consume(handler.handleOrderNotFound(orderNotFound));
+    }
+
+    @Benchmark
+    public void businessRuleViolation(Blackhole blackhole) {
+        blackhole.consume(handler.handleBusinessRulesViolation(invalidOrderState));
+    }
+
+    @Benchmark
+    public void invalidRequest(Blackhole blackhole) {
+        blackhole.consume(handler.handleInvalidRequest(invalidRequest));
+    }
+
+    @Benchmark
+    public void infrastructureFailure(Blackhole blackhole) {
+        blackhole.consume(handler.handleInfrastructureFailures(infrastructureFailure));
+    }
+}
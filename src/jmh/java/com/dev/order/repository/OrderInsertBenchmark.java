@@ -0,0 +1,146 @@
+package com.dev.order.repository;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of IDENTITY ids versus pooled (hi/lo block) ids, at the JDBC level Hibernate drives.
+ * One operation persists {@code ordersPerTransaction} orders in a single transaction:
+ * - identity: one INSERT round trip per row, each returning its generated key (batching impossible)
+ * - pooled:   ids reserved in blocks of 50 from a sequence table, rows sent as one rewritten batch
+ * Works on scratch tables so it never disturbs real id ranges. Needs the MySQL instance from application.yml
+ * (override with -Dbench.jdbc.url / -Dbench.jdbc.username / -Dbench.jdbc.password).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class OrderInsertBenchmark {
+    private static final int ALLOCATION_SIZE = 50;
+    private static final String INSERT_COLUMNS =
+            "customer_id, total_amount, currency, order_state, created_at, updated_at, version";
+
+    @Param({"1", "50", "200"})
+    private int ordersPerTransaction;
+
+    private Connection connection;
+    private Connection allocatorConnection;
+    private PreparedStatement identityInsert;
+    private PreparedStatement pooledInsert;
+    private PreparedStatement reserveBlock;
+    private long nextId;
+    private long blockEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url",
+                "jdbc:mysql://localhost:3306/order_payment_db?serverTimezone=UTC&rewriteBatchedStatements=true");
+        String username = System.getProperty("bench.jdbc.username", "order_user");
+        String password = System.getProperty("bench.jdbc.password", "order_pass");
+        connection = DriverManager.getConnection(url, username, password);
+        allocatorConnection = DriverManager.getConnection(url, username, password);
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_identity");
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_pooled");
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_seq");
+            ddl.execute("CREATE TABLE bench_orders_identity (order_id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+                    + " customer_id BIGINT NOT NULL, total_amount DECIMAL(19,4) NOT NULL, currency VARCHAR(3) NOT NULL,"
+                    + " order_state VARCHAR(16) NOT NULL, created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL,"
+                    + " version BIGINT NOT NULL)");
+            ddl.execute("CREATE TABLE bench_orders_pooled LIKE bench_orders_identity");
+            ddl.execute("ALTER TABLE bench_orders_pooled MODIFY order_id BIGINT NOT NULL");
+            ddl.execute("CREATE TABLE bench_orders_seq (next_val BIGINT NOT NULL)");
+            ddl.execute("INSERT INTO bench_orders_seq VALUES (1)");
+        }
+        connection.setAutoCommit(false);
+        allocatorConnection.setAutoCommit(true);
+        identityInsert = connection.prepareStatement(
+                "INSERT INTO bench_orders_identity (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+        pooledInsert = connection.prepareStatement(
+                "INSERT INTO bench_orders_pooled (order_id, " + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        //Atomic block reservation, committed independently of the business transaction (as Hibernate does)
+        reserveBlock = allocatorConnection.prepareStatement(
+                "UPDATE bench_orders_seq SET next_val = LAST_INSERT_ID(next_val + " + ALLOCATION_SIZE + ")");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = allocatorConnection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_identity");
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_pooled");
+            ddl.execute("DROP TABLE IF EXISTS bench_orders_seq");
+        }
+        connection.close();
+        allocatorConnection.close();
+    }
+
+    @Benchmark
+    public long identity() throws SQLException {
+        long lastId = 0;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < ordersPerTransaction; i++) {
+            bindOrder(identityInsert, 1, now);
+            identityInsert.executeUpdate();
+            try (ResultSet keys = identityInsert.getGeneratedKeys()) {
+                keys.next();
+                lastId = keys.getLong(1);
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long pooled() throws SQLException {
+        long lastId = 0;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < ordersPerTransaction; i++) {
+            lastId = allocateId();
+            pooledInsert.setLong(1, lastId);
+            bindOrder(pooledInsert, 2, now);
+            pooledInsert.addBatch();
+            if ((i + 1) % ALLOCATION_SIZE == 0) {
+                pooledInsert.executeBatch();
+            }
+        }
+        pooledInsert.executeBatch();
+        connection.commit();
+        return lastId;
+    }
+
+    private long allocateId() throws SQLException {
+        if (nextId == blockEnd) {
+            reserveBlock.executeUpdate();
+            try (Statement statement = allocatorConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT LAST_INSERT_ID()")) {
+                resultSet.next();
+                blockEnd = resultSet.getLong(1);
+            }
+            nextId = blockEnd - ALLOCATION_SIZE;
+        }
+        return nextId++;
+    }
+
+    private static void bindOrder(PreparedStatement statement, int firstIndex, Timestamp now) throws SQLException {
+        statement.setLong(firstIndex, 900_002L);
+        statement.setBigDecimal(firstIndex + 1, new BigDecimal("150.0000"));
+        statement.setString(firstIndex + 2, "USD");
+        statement.setString(firstIndex + 3, "CREATED");
+        statement.setTimestamp(firstIndex + 4, now);
+        statement.setTimestamp(firstIndex + 5, now);
+        statement.setLong(firstIndex + 6, 0L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.dev.order.repository;
+
+import com.dev.order.BenchmarkApplication;
+import com.dev.order.domain.Order;
+import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.OrderResponse;
+import com.dev.order.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path latency and allocation: managed entities + copy into response records,
+ * versus constructor-expression projections built straight from the result set.
+ * Run with the default GC profiler and compare gc.alloc.rate.norm. Needs the MySQL instance from application.yml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReadPathBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private Long customerId;
+    private Long orderId;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start();
+        orderRepository = context.getBean(OrderRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        OrderService orderService = context.getBean(OrderService.class);
+        customerId = BenchmarkApplication.BENCHMARK_CUSTOMER.userId();
+        orderId = BenchmarkApplication.asUser(BenchmarkApplication.BENCHMARK_CUSTOMER,
+                () -> orderService.createOrders(Collections.nCopies(PAGE_SIZE, new CreateOrderRequest(new BigDecimal("10.00"), "USD"))))
+                .orders().get(0).orderId();
+        pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("createdAt").descending());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrderResponse singleOrderEntity() {
+        return readOnlyTransaction.execute(status -> orderRepository.findByIdAndCustomerId(orderId, customerId)
+                .map(ReadPathBenchmark::toResponse)
+                .orElseThrow());
+    }
+
+    @Benchmark
+    public OrderResponse singleOrderProjection() {
+        return readOnlyTransaction.execute(status -> orderRepository.findResponseByIdAndCustomerId(orderId, customerId)
+                .orElseThrow());
+    }
+
+    @Benchmark
+    public Page<OrderResponse> orderPageEntity() {
+        return readOnlyTransaction.execute(status -> orderRepository.findByCustomerId(customerId, pageable)
+                .map(ReadPathBenchmark::toResponse));
+    }
+
+    @Benchmark
+    public Page<OrderResponse> orderPageProjection() {
+        return readOnlyTransaction.execute(status -> orderRepository.findResponsesByCustomerId(customerId, pageable));
+    }
+
+    private static OrderResponse toResponse(Order order) {
+        return new OrderResponse(order.getId(), order.getCustomerId(), order.getTotalAmount(), order.getCurrency(),
+                order.getOrderState(), order.getCreatedAt(), order.getUpdatedAt());
+    }
+}
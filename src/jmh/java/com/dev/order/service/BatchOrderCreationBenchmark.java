@@ -0,0 +1,63 @@
+package com.dev.order.service;
+
+import com.dev.order.BenchmarkApplication;
+import com.dev.order.dto.CreateOrderRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating a burst of orders through one batch call versus N single createOrder calls
+ * (N transactions, N commits). Throughput is reported in bursts/sec; multiply by burstSize for orders/sec.
+ * Needs the MySQL instance from application.yml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class BatchOrderCreationBenchmark {
+    @Param({"10", "100", "500"})
+    private int burstSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private List<CreateOrderRequest> burst;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        burst = new ArrayList<>(burstSize);
+        for (int i = 0; i < burstSize; i++) {
+            burst.add(new CreateOrderRequest(new BigDecimal("19.99"), "USD"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object singleCalls() throws Exception {
+        return BenchmarkApplication.asUser(BenchmarkApplication.BENCHMARK_CUSTOMER, () -> {
+            Object last = null;
+            for (CreateOrderRequest orderRequest : burst) {
+                last = orderService.createOrder(orderRequest);
+            }
+            return last;
+        });
+    }
+
+    @Benchmark
+    public Object batchCall() throws Exception {
+        return BenchmarkApplication.asUser(BenchmarkApplication.BENCHMARK_CUSTOMER,
+                () -> orderService.createOrders(burst));
+    }
+}
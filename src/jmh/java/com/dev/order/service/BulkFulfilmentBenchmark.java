@@ -0,0 +1,85 @@
+package com.dev.order.service;
+
+import com.dev.order.BenchmarkApplication;
+import com.dev.order.dto.BatchOrderResponse;
+import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.OrderResponse;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.UserRole;
+import com.dev.order.service.OrderFulfilmentService.BulkTransition;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancelling a batch of CREATED orders through the SYSTEM bulk path (chunked lock read + conditional UPDATE)
+ * versus one cancelOrder call per order (entity load, versioned UPDATE, one transaction each).
+ * Each measurement cancels a fresh batch of ordersPerCall orders; orders/sec = ordersPerCall / score.
+ * Needs the MySQL instance from application.yml.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class BulkFulfilmentBenchmark {
+    private static final AuthenticatedUser SYSTEM = new AuthenticatedUser(0L, UserRole.SYSTEM);
+    private static final int CREATE_BATCH = 500;
+
+    @Param({"1000", "10000"})
+    private int ordersPerCall;
+    @Param({"200", "500", "1000"})
+    private int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderFulfilmentService orderFulfilmentService;
+    private List<Long> orderIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("app.orders.fulfilment.chunk-size=" + chunkSize);
+        orderService = context.getBean(OrderService.class);
+        orderFulfilmentService = context.getBean(OrderFulfilmentService.class);
+    }
+
+    //Fresh CREATED orders for every measurement, shuffled like a real pick list
+    @Setup(Level.Iteration)
+    public void createOrders() throws Exception {
+        List<CreateOrderRequest> batch = Collections.nCopies(CREATE_BATCH, new CreateOrderRequest(new BigDecimal("19.99"), "USD"));
+        orderIds = new ArrayList<>(ordersPerCall);
+        while (orderIds.size() < ordersPerCall) {
+            BatchOrderResponse created = BenchmarkApplication.asUser(BenchmarkApplication.BENCHMARK_CUSTOMER,
+                    () -> orderService.createOrders(batch));
+            created.orders().stream().map(OrderResponse::orderId).limit(ordersPerCall - orderIds.size()).forEach(orderIds::add);
+        }
+        Collections.shuffle(orderIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object bulkCancel() throws Exception {
+        return BenchmarkApplication.asUser(SYSTEM, () -> orderFulfilmentService.apply(BulkTransition.CANCEL, orderIds));
+    }
+
+    @Benchmark
+    public Object perOrderCancel() throws Exception {
+        return BenchmarkApplication.asUser(BenchmarkApplication.BENCHMARK_CUSTOMER, () -> {
+            Object last = null;
+            for (Long orderId : orderIds) {
+                last = orderService.cancelOrder(orderId);
+            }
+            return last;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.dev.order.service;
+
+import com.dev.order.BenchmarkFixtures;
+import com.dev.order.domain.Order;
+import com.dev.order.domain.Payment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping done on every order / payment response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseMappingBenchmark {
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private OrderService orderService;
+    private PaymentService paymentService;
+    private Order order;
+    private Payment payment;
+    private Page<Order> orderPage;
+
+    @Setup
+    public void setUp() {
+        //Mapping does not touch collaborators
+        orderService = new OrderService(null, null, null, null, null, 500);
+        paymentService = new PaymentService(null, null, null, null, null, null, null, null, null, new SimpleMeterRegistry());
+        order = BenchmarkFixtures.order(1L);
+        payment = BenchmarkFixtures.payment(order, 1L);
+        List<Order> orders = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            orders.add(BenchmarkFixtures.order(i + 1));
+        }
+        orderPage = new PageImpl<>(orders, PageRequest.of(3, pageSize, Sort.by("createdAt").descending()), 10_000);
+    }
+
+    @Benchmark
+    public void buildOrderResponse(Blackhole blackhole) {
+        blackhole.consume(orderService.buildOrderResponse(order));
+    }
+
+    //Entity path: Page.map over hydrated entities, then the API DTO
+    @Benchmark
+    public void toPageOrderResponse(Blackhole blackhole) {
+        blackhole.consume(orderService.toPageOrderResponse(orderPage.map(orderService::buildOrderResponse), pageSize));
+    }
+
+    @Benchmark
+    public void buildPaymentResponse(Blackhole blackhole) {
+        blackhole.consume(paymentService.buildPaymentResponse(payment));
+    }
+}
@@ -0,0 +1,151 @@
+package com.dev.order.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows observed latency (gradient algorithm).
+ * The baseline is the lowest latency seen since the last probe, i.e. a request that did not queue; the
+ * recent latency is a short moving average (~10 requests). While the recent latency stays within
+ * rttTolerance of the baseline the target grows by about sqrt(limit); once requests queue (typically: threads
+ * waiting for database connections) the target shrinks in proportion, to no less than half the limit. Each sample
+ * moves the limit only a smoothing fraction of the way to the target: with smoothing 0.05 a single sample cuts
+ * it by at most about 2.5%, so a sustained slowdown takes a few dozen samples to halve it.
+ * A plain minimum would never notice the database getting slower for good, so after ~30 round trips' worth of
+ * requests at the current limit the baseline is measured again, but only if requests were shed meanwhile: a load
+ * the limit has room for needs no re-measurement and is never cut. The probe halves the limit for about one round
+ * trip, takes the baseline from requests admitted after the cut, and then restores the previous limit for the
+ * gradient to adjust against the new baseline.
+ * Admission is a CAS on the in-flight count. Every release feeds its sample to the limit under this object's
+ * monitor, so each admitted request holds this one shared lock for a few arithmetic operations on its way out.
+ */
+final class AdaptiveConcurrencyLimiter {
+    private static final double SHORT_WINDOW_ALPHA = 2.0 / (10 + 1);
+    private static final double MIN_GRADIENT = 0.5;
+    //Probe after roughly this many round trips at the current limit
+    private static final int PROBE_INTERVAL_ROUND_TRIPS = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private volatile boolean shed;
+
+    //Guarded by this
+    private double estimatedLimit;
+    private double shortRtt;
+    private long baselineRtt;
+    private long baselineSince;
+    private int samplesSinceProbe;
+    private double probeJitter;
+    //Limit to restore once the probe has counted probeSamplesLeft requests admitted after the cut; 0 when not probing
+    private double limitBeforeProbe;
+    private int probeSamplesLeft;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit || rttTolerance < 1 || smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Require 1 <= minLimit <= maxLimit, rttTolerance >= 1, 0 < smoothing <= 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.baselineRtt = Long.MAX_VALUE;
+        this.baselineSince = nanoClock.getAsLong();
+        this.probeJitter = nextProbeJitter();
+    }
+
+    boolean tryAcquire() {
+        return tryAcquire(1.0);
+    }
+
+    /**
+     * Admits a request while the in-flight count is below share * limit: a class of requests with a share
+     * below 1 is shed first and leaves the remaining headroom to the classes with a larger share.
+     */
+    boolean tryAcquire(double share) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit * share) {
+                if (!shed) {
+                    shed = true;
+                }
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request and feeds its latency into the limit.
+     * @param startNanos when the request was admitted, read from the same clock as nanoClock
+     */
+    void release(long startNanos) {
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        onSample(startNanos, nanoClock.getAsLong(), inFlightAtEnd);
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long startNanos, long endNanos, int inFlightAtEnd) {
+        long rtt = Math.max(1, endNanos - startNanos);
+        //Requests admitted before the last probe may have queued behind the old limit
+        if (startNanos - baselineSince >= 0 && rtt < baselineRtt) {
+            baselineRtt = rtt;
+        }
+        shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) * SHORT_WINDOW_ALPHA;
+        if (limitBeforeProbe > 0) {
+            if (startNanos - baselineSince >= 0 && --probeSamplesLeft <= 0) {
+                estimatedLimit = limitBeforeProbe;
+                limit = (int) estimatedLimit;
+                limitBeforeProbe = 0;
+                //Shed by the probe itself: not a reason for the next one
+                shed = false;
+            }
+            return;
+        }
+        if (++samplesSinceProbe > PROBE_INTERVAL_ROUND_TRIPS * estimatedLimit * probeJitter) {
+            samplesSinceProbe = 0;
+            probeJitter = nextProbeJitter();
+            if (shed) {
+                shed = false;
+                limitBeforeProbe = estimatedLimit;
+                estimatedLimit = Math.max(minLimit, estimatedLimit / 2);
+                limit = (int) estimatedLimit;
+                probeSamplesLeft = limit;
+                baselineRtt = Long.MAX_VALUE;
+                baselineSince = endNanos;
+                return;
+            }
+        }
+        //Lightly used: latency says nothing about the limit, and growing it without use would only risk a pile-up
+        if (baselineRtt == Long.MAX_VALUE || inFlightAtEnd < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * baselineRtt / shortRtt));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + target * smoothing));
+        limit = (int) estimatedLimit;
+    }
+
+    //Jittered so instances behind the same load balancer do not probe in lockstep
+    private static double nextProbeJitter() {
+        return 1 + ThreadLocalRandom.current().nextDouble(0.5);
+    }
+}
@@ -5,20 +5,65 @@
  */
 package com.dev.order.config;
 
+import com.dev.order.exception.RateLimitExceededException;
 import com.dev.order.exception.UnauthorizedException;
 import com.dev.order.security.AuthenticatedUser;
 import com.dev.order.security.RequestContext;
 import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.Filter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AuthenticationFilterConfig {
+    private static final int RATE_LIMIT_STRIPES = 64;
+
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final boolean rateLimitEnabled;
+    //Separate buckets: a burst of reads never uses up a customer's payment allowance, and vice versa
+    private final RateLimiter readLimiter;
+    private final RateLimiter paymentWriteLimiter;
+    private final Counter readsLimited;
+    private final Counter paymentWritesLimited;
+
+    public AuthenticationFilterConfig(
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+            MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.enabled:true}") boolean rateLimitEnabled,
+            @Value("${app.rate-limit.reads.permits-per-second:50}") double readsPerSecond,
+            @Value("${app.rate-limit.reads.burst:100}") int readBurst,
+            @Value("${app.rate-limit.payment-writes.permits-per-second:5}") double paymentWritesPerSecond,
+            @Value("${app.rate-limit.payment-writes.burst:10}") int paymentWriteBurst,
+            @Value("${app.rate-limit.idle-timeout:10m}") Duration idleTimeout) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.readLimiter = new RateLimiter(readsPerSecond, readBurst, idleTimeout, RATE_LIMIT_STRIPES, System::nanoTime);
+        this.paymentWriteLimiter = new RateLimiter(
+                paymentWritesPerSecond, paymentWriteBurst, idleTimeout, RATE_LIMIT_STRIPES, System::nanoTime);
+        this.readsLimited = limitedCounter(meterRegistry, "read");
+        this.paymentWritesLimited = limitedCounter(meterRegistry, "payment_write");
+        Gauge.builder("http.requests.rate.limiter.customers", readLimiter, RateLimiter::trackedCustomers)
+                .description("Customers with a live token bucket")
+                .tag("endpoint", "read")
+                .register(meterRegistry);
+        Gauge.builder("http.requests.rate.limiter.customers", paymentWriteLimiter, RateLimiter::trackedCustomers)
+                .description("Customers with a live token bucket")
+                .tag("endpoint", "payment_write")
+                .register(meterRegistry);
+    }
 
     @Bean
     public FilterRegistrationBean<Filter> authenticationFilter() {
@@ -52,11 +97,20 @@ public class AuthenticationFilterConfig {
                 // 4️⃣ Store identity in request-scoped context
                 RequestContext.set(user);
 
-                // 5️⃣ Continue request
+                // 5️⃣ Per-customer rate limit; rejected requests get the regular error body (429 + Retry-After)
+                if (rateLimitEnabled && user.role() != UserRole.SYSTEM) {
+                    RateLimitExceededException rejection = checkRateLimit(req, user);
+                    if (rejection != null) {
+                        handlerExceptionResolver.resolveException(req, res, null, rejection);
+                        return;
+                    }
+                }
+
+                // 6️⃣ Continue request
                 chain.doFilter(request, response);
 
             } finally {
-                // 6️⃣ Critical cleanup to avoid ThreadLocal leaks
+                // 7️⃣ Critical cleanup to avoid ThreadLocal leaks
                 RequestContext.clear();
             }
         });
@@ -66,6 +120,33 @@ public class AuthenticationFilterConfig {
         return registration;
     }
 
+    /*
+     * Endpoint classes: payment creation (POST .../payments) and reads (GET).
+     * Other writes (order create / cancel, batch) are not rate limited here.
+     */
+    private RateLimitExceededException checkRateLimit(HttpServletRequest req, AuthenticatedUser user) {
+        boolean paymentWrite = "POST".equals(req.getMethod()) && req.getRequestURI().endsWith("/payments");
+        RateLimiter limiter = paymentWrite ? paymentWriteLimiter : "GET".equals(req.getMethod()) ? readLimiter : null;
+        if (limiter == null) {
+            return null;
+        }
+        long waitNanos = limiter.tryAcquire(user.userId());
+        if (waitNanos == RateLimiter.ADMITTED) {
+            return null;
+        }
+        (paymentWrite ? paymentWritesLimited : readsLimited).increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return new RateLimitExceededException(
+                paymentWrite ? "Payment request rate exceeded" : "Read request rate exceeded", retryAfterSeconds);
+    }
+
+    private static Counter limitedCounter(MeterRegistry meterRegistry, String endpoint) {
+        return Counter.builder("http.requests.rate.limited")
+                .description("Requests rejected with 429 by the per-customer rate limiter")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
     /**
      * V1 token validation stub.
      * Real system would validate JWT / OAuth token.
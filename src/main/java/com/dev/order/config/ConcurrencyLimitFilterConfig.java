@@ -0,0 +1,137 @@
+package com.dev.order.config;
+
+import com.dev.order.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.util.concurrent.Semaphore;
+
+@Configuration
+public class ConcurrencyLimitFilterConfig {
+    private static final long RETRY_AFTER_SECONDS = 1;
+    private static final long EXPORT_RETRY_AFTER_SECONDS = 10;
+
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final boolean enabled;
+    //One limit: payment writes and everything else wait for the same database connections
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final double otherShare;
+    private final Counter paymentWritesRejected;
+    private final Counter othersRejected;
+    //Exports hold a streaming connection for the whole download: a small fixed bulkhead of their own
+    private final Semaphore exports;
+    private final Counter exportsRejected;
+
+    public ConcurrencyLimitFilterConfig(
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+            MeterRegistry meterRegistry,
+            @Value("${app.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${app.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${app.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${app.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${app.concurrency-limit.rtt-tolerance:1.5}") double rttTolerance,
+            @Value("${app.concurrency-limit.smoothing:0.05}") double smoothing,
+            @Value("${app.concurrency-limit.other-share:0.75}") double otherShare,
+            @Value("${app.orders.export.max-concurrent:4}") int maxConcurrentExports) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.enabled = enabled;
+        this.limiter = new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, rttTolerance, smoothing, System::nanoTime);
+        this.otherShare = otherShare;
+        this.paymentWritesRejected = rejectedCounter(meterRegistry, "payment_write");
+        this.othersRejected = rejectedCounter(meterRegistry, "other");
+        this.exports = new Semaphore(maxConcurrentExports);
+        this.exportsRejected = rejectedCounter(meterRegistry, "export");
+        Gauge.builder("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("http.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requests currently admitted by the concurrency limiter")
+                .register(meterRegistry);
+        Gauge.builder("http.export.available", exports, Semaphore::availablePermits)
+                .description("Free export slots")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sheds requests beyond the adaptive concurrency limit with a 503 before they reach a controller.
+     * Priority: runs after authentication and the per-customer rate limit, so only admitted traffic counts.
+     * Exports bypass the adaptive limit (their duration is not a load signal) but get a fixed number of slots.
+     */
+    @Bean
+    public FilterRegistrationBean<Filter> concurrencyLimitFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>();
+
+        registration.setFilter((request, response, chain) -> {
+            if (!(request instanceof HttpServletRequest req) || !(response instanceof HttpServletResponse res)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            if (isExport(req)) {
+                if (!exports.tryAcquire()) {
+                    exportsRejected.increment();
+                    handlerExceptionResolver.resolveException(req, res, null, new ConcurrencyLimitExceededException(
+                            "Too many exports in progress, retry later", EXPORT_RETRY_AFTER_SECONDS));
+                    return;
+                }
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    exports.release();
+                }
+                return;
+            }
+            if (!enabled || isInternal(req)) {
+                chain.doFilter(request, response);
+                return;
+            }
+
+            //Payment writes may use the whole limit, everything else only other-share of it: the rest is theirs
+            boolean paymentWrite = "POST".equals(req.getMethod()) && req.getRequestURI().endsWith("/payments");
+            if (!limiter.tryAcquire(paymentWrite ? 1.0 : otherShare)) {
+                (paymentWrite ? paymentWritesRejected : othersRejected).increment();
+                handlerExceptionResolver.resolveException(req, res, null, new ConcurrencyLimitExceededException(
+                        "Service is at capacity, retry later", RETRY_AFTER_SECONDS));
+                return;
+            }
+
+            long startNanos = System.nanoTime();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                limiter.release(startNanos);
+            }
+        });
+
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2); // runs after the authentication filter
+        return registration;
+    }
+
+    //Internal batch endpoints run for seconds to minutes: their latency is not a load signal
+    private static boolean isInternal(HttpServletRequest req) {
+        return req.getRequestURI().startsWith("/api/v1/internal/");
+    }
+
+    private static boolean isExport(HttpServletRequest req) {
+        return "GET".equals(req.getMethod()) && req.getRequestURI().endsWith("/orders/export");
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String endpoint) {
+        return Counter.builder("http.concurrency.rejected")
+                .description("Requests shed with 503 by the adaptive concurrency limiter or the export bulkhead")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+}
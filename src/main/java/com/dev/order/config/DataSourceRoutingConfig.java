@@ -0,0 +1,100 @@
+package com.dev.order.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primary / replica routing, off by default (app.datasource.routing.enabled).
+ * The exposed DataSource is a LazyConnectionDataSourceProxy: the physical connection is only fetched at the
+ * first statement, after the transaction manager has marked it read-only, so @Transactional(readOnly = true)
+ * work is served by the replicas and everything else by the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+@Slf4j
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReadYourWritesGuard readYourWritesGuard(
+            @Value("${app.datasource.routing.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWritesGuard(window);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${spring.datasource.driver-class-name}") String driverClassName,
+            @Value("${app.datasource.routing.primary-pool-size:20}") int poolSize) {
+        return pool("primary", url, username, password, driverClassName, poolSize, Duration.ofSeconds(30));
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            ReadYourWritesGuard readYourWritesGuard,
+            MeterRegistry meterRegistry,
+            @Value("${app.datasource.routing.replica-urls:}") List<String> replicaUrls,
+            @Value("${app.datasource.routing.replica-username:${spring.datasource.username}}") String username,
+            @Value("${app.datasource.routing.replica-password:${spring.datasource.password}}") String password,
+            @Value("${spring.datasource.driver-class-name}") String driverClassName,
+            @Value("${app.datasource.routing.replica-pool-size:20}") int poolSize,
+            //Short: a dead replica must not hold a read for Hikari's default 30s before falling back
+            @Value("${app.datasource.routing.replica-connection-timeout:250ms}") Duration connectionTimeout,
+            @Value("${app.datasource.routing.health-check-interval:2s}") Duration healthCheckInterval) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String replicaUrl : replicaUrls) {
+            if (!replicaUrl.isBlank()) {
+                String name = "replica-" + (replicas.size() + 1);
+                replicas.put(name, pool(name, replicaUrl.trim(), username, password, driverClassName, poolSize, connectionTimeout));
+            }
+        }
+        ReplicaRoutingDataSource replicaRoutingDataSource =
+                new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWritesGuard, meterRegistry);
+        replicaRoutingDataSource.startHealthChecks(healthCheckInterval);
+        log.info("Read-replica routing enabled. replicas={}, healthCheckInterval={}", replicas.keySet(), healthCheckInterval);
+        return replicaRoutingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ReplicaRoutingDataSource replicaRoutingDataSource,
+                                 ReadYourWritesGuard readYourWritesGuard) {
+        return routingDataSource(primaryDataSource, replicaRoutingDataSource, readYourWritesGuard);
+    }
+
+    static DataSource routingDataSource(DataSource primary, DataSource readOnly, ReadYourWritesGuard readYourWritesGuard) {
+        LazyConnectionDataSourceProxy routingDataSource =
+                new LazyConnectionDataSourceProxy(readYourWritesGuard.pinningWrites(primary));
+        routingDataSource.setReadOnlyDataSource(readOnly);
+        return routingDataSource;
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         String driverClassName, int poolSize, Duration connectionTimeout) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setDriverClassName(driverClassName);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+        return dataSource;
+    }
+}
@@ -0,0 +1,202 @@
+package com.dev.order.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-customer token buckets, one primitive long per customer.
+ * Each bucket is kept in GCRA form (theoretical arrival time, tat): a request at now is admitted when
+ * max(tat, now) - now <= (burst - 1) / rate and then moves tat one emission interval (1 / rate) forward.
+ * That is exactly a token bucket of size burst refilled at rate, but admitting is a single CAS on one long:
+ * the hot path takes no lock and allocates nothing.
+ * Buckets live in striped open-addressing tables of primitive longs (no boxed keys). Lookups never lock;
+ * only a customer's first request takes its stripe's lock to insert. A stripe that reaches half capacity is
+ * rebuilt without the customers idle for longer than idleTimeout (their bucket is full again anyway, so
+ * forgetting them changes nothing) and only grows if that is not enough. The rebuild marks every old slot
+ * as moved, so an admission racing with it retries against the new table instead of being lost.
+ */
+final class RateLimiter {
+    static final long ADMITTED = 0;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    //tat of a slot whose bucket was copied to a rebuilt table (or evicted)
+    private static final long MOVED = Long.MIN_VALUE;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final LongAdder evictions = new LongAdder();
+
+    RateLimiter(double permitsPerSecond, int burst, Duration idleTimeout, int stripeCount, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive, stripeCount a power of two");
+        }
+        this.emissionIntervalNanos = Math.max(1, Math.round(1_000_000_000d / permitsPerSecond));
+        this.burstToleranceNanos = (burst - 1) * emissionIntervalNanos;
+        this.idleTimeoutNanos = Math.max(idleTimeout.toNanos(), burstToleranceNanos + emissionIntervalNanos);
+        this.nanoClock = nanoClock;
+        this.stripes = new Stripe[stripeCount];
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(new Table(INITIAL_STRIPE_CAPACITY));
+        }
+    }
+
+    /**
+     * @return ADMITTED, or the nanoseconds until this customer's next request would be admitted
+     */
+    long tryAcquire(long customerId) {
+        if (customerId == EMPTY) {
+            throw new IllegalArgumentException("Unsupported customer id: " + customerId);
+        }
+        long now = nanoClock.getAsLong();
+        long hash = mix(customerId);
+        Stripe stripe = stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+        Table table = stripe.table;
+        int slot = table.find(customerId, hash);
+        if (slot < 0) {
+            table = stripe.insert(this, customerId, hash, now);
+            slot = table.find(customerId, hash);
+        }
+        while (true) {
+            long tat = table.tats.get(slot);
+            if (tat == MOVED) {
+                table = stripe.table;
+                slot = table.find(customerId, hash);
+                if (slot < 0) {
+                    table = stripe.insert(this, customerId, hash, now);
+                    slot = table.find(customerId, hash);
+                }
+                continue;
+            }
+            long start = Math.max(tat, now);
+            long waitNanos = start - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (table.tats.compareAndSet(slot, tat, start + emissionIntervalNanos)) {
+                return ADMITTED;
+            }
+        }
+    }
+
+    long trackedCustomers() {
+        long tracked = 0;
+        for (Stripe stripe : stripes) {
+            tracked += stripe.table.size;
+        }
+        return tracked;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    //Drops idle customers and doubles the capacity until the live ones fill at most half of it
+    private Table rebuild(Table table, long now) {
+        int live = 0;
+        for (int i = 0; i < table.keys.length(); i++) {
+            if (table.keys.get(i) != EMPTY && now - table.tats.get(i) <= idleTimeoutNanos) {
+                live++;
+            }
+        }
+        int capacity = table.keys.length();
+        while ((live + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        Table rebuilt = new Table(capacity);
+        int copied = 0;
+        for (int i = 0; i < table.keys.length(); i++) {
+            long key = table.keys.get(i);
+            if (key == EMPTY) {
+                continue;
+            }
+            //Freezes the slot: concurrent admissions now fail their CAS and move on to the rebuilt table
+            long tat = table.tats.getAndSet(i, MOVED);
+            if (now - tat <= idleTimeoutNanos) {
+                rebuilt.put(key, mix(key), tat);
+                copied++;
+            }
+        }
+        evictions.add(table.size - copied);
+        return rebuilt;
+    }
+
+    //Murmur3 finalizer: customer ids are sequential, the probe sequence must not be
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Stripe {
+        private volatile Table table;
+
+        private Stripe(Table table) {
+            this.table = table;
+        }
+
+        private synchronized Table insert(RateLimiter limiter, long key, long hash, long now) {
+            Table current = table;
+            if (current.find(key, hash) >= 0) {
+                return current;
+            }
+            if ((current.size + 1) * 2 > current.keys.length()) {
+                current = limiter.rebuild(current, now);
+            }
+            //A new customer starts with a full bucket
+            current.put(key, hash, now);
+            table = current;
+            return current;
+        }
+    }
+
+    private static final class Table {
+        private final AtomicLongArray keys;
+        private final AtomicLongArray tats;
+        private final int mask;
+        private volatile int size;
+
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.tats = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        //Linear probing; load stays at or below one half, so an EMPTY slot is always reached
+        private int find(long key, long hash) {
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                long candidate = keys.get(slot);
+                if (candidate == key) {
+                    return slot;
+                }
+                if (candidate == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        //Caller holds the stripe lock; the tat is written before the key publishes the slot to readers
+        private void put(long key, long hash, long tat) {
+            int slot = (int) hash & mask;
+            while (keys.get(slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            tats.set(slot, tat);
+            keys.set(slot, key);
+            size++;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.dev.order.config;
+
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes for replica routing: a customer who just wrote (created, cancelled or paid for an order)
+ * reads from the primary for a short window, so they never see a replica that has not caught up yet.
+ * Pins are per node and expire on their own.
+ */
+public class ReadYourWritesGuard {
+    private final Cache<Long, Boolean> pinnedCustomers;
+
+    public ReadYourWritesGuard(Duration window) {
+        this.pinnedCustomers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void pin(Long customerId) {
+        pinnedCustomers.put(customerId, Boolean.TRUE);
+    }
+
+    public boolean isPinned(Long customerId) {
+        return pinnedCustomers.getIfPresent(customerId) != null;
+    }
+
+    /**
+     * Wraps the primary so every write-side connection taken on behalf of a request pins its customer.
+     * Covers every write path without each service having to remember to pin.
+     */
+    DataSource pinningWrites(DataSource primary) {
+        return new DelegatingDataSource(primary) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                AuthenticatedUser user = RequestContext.get();
+                if (user != null) {
+                    pin(user.userId());
+                }
+                return super.getConnection();
+            }
+        };
+    }
+}
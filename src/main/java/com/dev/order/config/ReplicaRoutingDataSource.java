@@ -0,0 +1,142 @@
+package com.dev.order.config;
+
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.service.PeriodicTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read side of the routing datasource: hands out connections for read-only transactions.
+ * Replicas are used round-robin while healthy; a replica that fails to give a connection is skipped until
+ * the periodic health check sees it answer again. With no healthy replica, or while the current customer is
+ * pinned by the ReadYourWritesGuard, reads go to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWritesGuard readYourWritesGuard;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+    private PeriodicTask healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    ReadYourWritesGuard readYourWritesGuard, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWritesGuard = readYourWritesGuard;
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.pinnedReads = readCounter(meterRegistry, "primary_pinned");
+        this.fallbackReads = readCounter(meterRegistry, "primary_fallback");
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.routing.reads")
+                .tag("target", target)
+                .description("Read-only connections handed out, by where they were routed")
+                .register(meterRegistry);
+    }
+
+    public void startHealthChecks(Duration interval) {
+        healthChecker = PeriodicTask.start("replica-health", interval, interval, this::checkHealth);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AuthenticatedUser user = RequestContext.get();
+        if (user != null && readYourWritesGuard.isPinned(user.userId())) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException ex) {
+                //Taken out of rotation until the health check sees it answer again
+                replica.healthy = false;
+                log.warn("Replica unavailable, removed from rotation. replica={}, reason={}", replica.name, ex.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica routing uses the pools' own credentials");
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException ex) {
+                healthy = false;
+            } catch (RuntimeException ex) {
+                //One broken replica must not skip the checks of the others
+                log.error("Replica health check failed. replica={}", replica.name, ex);
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Replica health changed. replica={}, healthy={}", replica.name, healthy);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.stop();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dev.order.controller;
+
+import com.dev.order.dto.BulkTransitionRequest;
+import com.dev.order.dto.BulkTransitionResponse;
+import com.dev.order.exception.AccessDeniedException;
+import com.dev.order.exception.UnauthorizedException;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import com.dev.order.service.OrderFulfilmentService;
+import com.dev.order.service.OrderFulfilmentService.BulkTransition;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Internal fulfilment API for warehouse / back-office callers. SYSTEM role only.
+ */
+@RestController
+@Validated
+@RequestMapping("/api/v1/internal")
+@Slf4j
+public class FulfilmentController {
+    private final OrderFulfilmentService orderFulfilmentService;
+    public FulfilmentController(OrderFulfilmentService orderFulfilmentService) {
+        this.orderFulfilmentService = orderFulfilmentService;
+    }
+    @PostMapping("/orders/ship")
+    public ResponseEntity<BulkTransitionResponse> shipOrders(@Valid @RequestBody BulkTransitionRequest transitionRequest) {
+        authorize();
+        log.info("Bulk ship request received. count={}", transitionRequest.orderIds().size());
+        BulkTransitionResponse bulkTransitionResponse =
+                orderFulfilmentService.apply(BulkTransition.SHIP, transitionRequest.orderIds());
+        return ResponseEntity.ok(bulkTransitionResponse);
+    }
+    @PostMapping("/orders/cancel")
+    public ResponseEntity<BulkTransitionResponse> cancelOrders(@Valid @RequestBody BulkTransitionRequest transitionRequest) {
+        authorize();
+        log.info("Bulk cancel request received. count={}", transitionRequest.orderIds().size());
+        BulkTransitionResponse bulkTransitionResponse =
+                orderFulfilmentService.apply(BulkTransition.CANCEL, transitionRequest.orderIds());
+        return ResponseEntity.ok(bulkTransitionResponse);
+    }
+    private void authorize() {
+        AuthenticatedUser user = RequestContext.get();
+        if(user == null) {
+            throw new UnauthorizedException("Unauthenticated request");
+        }
+        if(user.role() != UserRole.SYSTEM) {
+            throw new AccessDeniedException("Only the SYSTEM role is allowed for internal APIs");
+        }
+    }
+}
@@ -5,32 +5,50 @@
  */
 package com.dev.order.controller;
 
+import com.dev.order.dto.BatchOrderResponse;
+import com.dev.order.dto.BulkOrderResponse;
+import com.dev.order.dto.CreateOrderBatchRequest;
 import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.CursorOrderResponse;
+import com.dev.order.dto.OrderDetailsResponse;
 import com.dev.order.dto.OrderResponse;
+import com.dev.order.dto.OrderSummaryResponse;
 import com.dev.order.dto.PageOrderResponse;
+import com.dev.order.dto.SliceOrderResponse;
 import com.dev.order.exception.AccessDeniedException;
 import com.dev.order.exception.UnauthorizedException;
 import com.dev.order.security.AuthenticatedUser;
 import com.dev.order.security.RequestContext;
 import com.dev.order.security.UserRole;
+import com.dev.order.service.OrderExportService;
 import com.dev.order.service.OrderService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
 @RestController
 @Validated
 @RequestMapping("/api/v1")
 @Slf4j
 public class OrderController {
     private final OrderService orderService;
-    public OrderController(OrderService orderService) {
+    private final OrderExportService orderExportService;
+    public OrderController(OrderService orderService, OrderExportService orderExportService) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
     }
     @PostMapping("/orders")
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest orderRequest) {
@@ -39,6 +57,48 @@ public class OrderController {
         OrderResponse orderResponse = orderService.createOrder(orderRequest);
         return ResponseEntity.status(HttpStatus.CREATED).body(orderResponse);
     }
+    @PostMapping("/orders/batch")
+    public ResponseEntity<BatchOrderResponse> createOrders(@Valid @RequestBody CreateOrderBatchRequest batchRequest) {
+        authorize();
+        log.info("Batch create order request received. count={}", batchRequest.orders().size());
+        BatchOrderResponse batchOrderResponse = orderService.createOrders(batchRequest.orders());
+        return ResponseEntity.status(HttpStatus.CREATED).body(batchOrderResponse);
+    }
+    //Literal path: takes precedence over /orders/{orderId}
+    @GetMapping("/orders/summary")
+    public ResponseEntity<OrderSummaryResponse> getOrderSummary() {
+        authorize();
+        log.debug("Get order summary request received.");
+        OrderSummaryResponse orderSummaryResponse = orderService.getOrderSummary();
+        return ResponseEntity.ok(orderSummaryResponse);
+    }
+    /**
+     * Streaming export: GET /orders/export?format=ndjson|csv&orderState=&from=&to=
+     * Written straight to the response as rows are read; gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/orders/export")
+    public void exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String orderState,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        authorize();
+        log.info("Export orders request received. format={}, orderState={}, from={}, to={}", format, orderState, from, to);
+        OrderExportService.ExportRequest exportRequest = orderExportService.prepare(format, orderState, from, to);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(exportRequest.format().contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders." + exportRequest.format().extension() + "\"");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        orderExportService.export(exportRequest, response.getOutputStream(), gzip);
+    }
     @GetMapping("/orders/{orderId}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable @Positive Long orderId) {
         authorize();
@@ -46,6 +106,13 @@ public class OrderController {
         OrderResponse orderResponse = orderService.getOrderById(orderId);
         return ResponseEntity.status(HttpStatus.OK).body(orderResponse);
     }
+    @GetMapping(value = "/orders/{orderId}", params = "include=payments")
+    public ResponseEntity<OrderDetailsResponse> getOrderWithPayments(@PathVariable @Positive Long orderId) {
+        authorize();
+        log.info("Get order with payments request received. orderId={}", orderId);
+        OrderDetailsResponse orderDetailsResponse = orderService.getOrderWithPayments(orderId);
+        return ResponseEntity.ok(orderDetailsResponse);
+    }
     @GetMapping("/orders")
     public ResponseEntity<PageOrderResponse> getOrders(
             @RequestParam(defaultValue = "0") @Min(0) Integer page,
@@ -56,6 +123,38 @@ public class OrderController {
         PageOrderResponse pageOrderResponse = orderService.getOrders(page, size, orderState);
         return ResponseEntity.ok(pageOrderResponse);
     }
+    //Multi-get: GET /orders?ids=1,2,3
+    @GetMapping(value = "/orders", params = "ids")
+    public ResponseEntity<BulkOrderResponse> getOrdersByIds(@RequestParam List<@Positive Long> ids) {
+        authorize();
+        log.debug("Get orders by ids request received. count={}", ids.size());
+        BulkOrderResponse bulkOrderResponse = orderService.getOrdersByIds(ids);
+        return ResponseEntity.ok(bulkOrderResponse);
+    }
+    //Count-free mode: GET /orders?mode=slice&page=&size=&orderState=&includeTotal=
+    @GetMapping(value = "/orders", params = "mode=slice")
+    public ResponseEntity<SliceOrderResponse> getOrderSlice(
+            @RequestParam(defaultValue = "0") @Min(0) Integer page,
+            @RequestParam(defaultValue = "20") @Min(1) Integer size,
+            @RequestParam(required = false) String orderState,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        authorize();
+        log.debug("Get order slice request received. page={}, size={}, orderState={}, includeTotal={}",
+                page, size, orderState, includeTotal);
+        SliceOrderResponse sliceOrderResponse = orderService.getOrderSlice(page, size, orderState, includeTotal);
+        return ResponseEntity.ok(sliceOrderResponse);
+    }
+    //Keyset (cursor) mode: GET /orders?mode=cursor&cursor=&size=&orderState=
+    @GetMapping(value = "/orders", params = "mode=cursor")
+    public ResponseEntity<CursorOrderResponse> getOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) Integer size,
+            @RequestParam(required = false) String orderState) {
+        authorize();
+        log.debug("Get orders by cursor request received. size={}, orderState={}", size, orderState);
+        CursorOrderResponse cursorOrderResponse = orderService.getOrdersByCursor(cursor, size, orderState);
+        return ResponseEntity.ok(cursorOrderResponse);
+    }
     @PostMapping("/orders/{orderId}/cancel")
     public ResponseEntity<OrderResponse> cancelOrder(@PathVariable @Positive Long orderId) {
         authorize();
@@ -5,6 +5,9 @@
  */
 package com.dev.order.controller;
 
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.BulkPaymentResponse;
+import com.dev.order.dto.OrderPaymentsResponse;
 import com.dev.order.dto.PaymentRequest;
 import com.dev.order.dto.PaymentResponse;
 import com.dev.order.exception.AccessDeniedException;
@@ -24,6 +27,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @Validated
 @RequestMapping("/api/v1")
@@ -46,6 +51,11 @@ public class PaymentController {
         //Entry log (Logging the Order ID)
         log.info("Create payment request received for orderId={}", orderId);
         PaymentResult paymentResult = paymentService.processPayment(orderId, paymentRequest, idempotencyKey);
+        //Async mode (new or replayed): settlement still running, poll GET /payments/{paymentId}
+        if(paymentResult.paymentResponse().paymentState() == PaymentState.PENDING) {
+            log.info("Payment accepted for settlement. paymentId={}", paymentResult.paymentResponse().paymentId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentResult.paymentResponse());
+        }
         if(paymentResult.isNewlyCreated()) {
             // Exit Log (Success)
             log.info("Payment created successfully. paymentId={}", paymentResult.paymentResponse().paymentId());
@@ -66,6 +76,26 @@ public class PaymentController {
         log.info("Payment fetched successfully for paymentId={}", paymentId);
         return ResponseEntity.ok().body(paymentResult.paymentResponse());
     }
+    //Multi-get: GET /payments?ids=1,2,3
+    @GetMapping("/payments")
+    public ResponseEntity<BulkPaymentResponse> getPayments(@RequestParam List<@Positive Long> ids) {
+        //Authorization check
+        authorize();
+        log.info("Get payments by ids request received. count={}", ids.size());
+        BulkPaymentResponse bulkPaymentResponse = paymentService.fetchPayments(ids);
+        log.info("Payments multi-get completed. found={}, notFound={}",
+                bulkPaymentResponse.payments().size(), bulkPaymentResponse.notFound().size());
+        return ResponseEntity.ok(bulkPaymentResponse);
+    }
+    @GetMapping("/orders/{orderId}/payments")
+    public ResponseEntity<OrderPaymentsResponse> getPaymentsForOrder(@PathVariable @Positive Long orderId) {
+        //Authorization check
+        authorize();
+        log.info("Get payments request received for orderId={}", orderId);
+        OrderPaymentsResponse orderPaymentsResponse = paymentService.fetchPaymentsForOrder(orderId);
+        log.info("Payments fetched successfully for orderId={}, count={}", orderId, orderPaymentsResponse.payments().size());
+        return ResponseEntity.ok(orderPaymentsResponse);
+    }
     private void authorize() {
         AuthenticatedUser user = RequestContext.get();
         if(user == null) {
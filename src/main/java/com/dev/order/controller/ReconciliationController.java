@@ -0,0 +1,59 @@
+package com.dev.order.controller;
+
+import com.dev.order.dto.ReconciliationRunResponse;
+import com.dev.order.exception.AccessDeniedException;
+import com.dev.order.exception.UnauthorizedException;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import com.dev.order.service.PaymentReconciliationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+/**
+ * Internal settlement reconciliation, triggered by the nightly job. SYSTEM role only.
+ * A run executes in the background: the POST answers 202 with a run id and the GET on its Location reports
+ * progress and the result. Starting the same file again after a failed or incomplete run resumes it.
+ */
+@RestController
+@Validated
+@RequestMapping("/api/v1/internal")
+@Slf4j
+public class ReconciliationController {
+    private final PaymentReconciliationService paymentReconciliationService;
+    public ReconciliationController(PaymentReconciliationService paymentReconciliationService) {
+        this.paymentReconciliationService = paymentReconciliationService;
+    }
+    @PostMapping("/payments/reconciliations")
+    public ResponseEntity<ReconciliationRunResponse> reconcile(@RequestParam("file") String settlementFile) {
+        authorize();
+        log.info("Reconciliation request received. file={}", settlementFile);
+        ReconciliationRunResponse run = paymentReconciliationService.start(settlementFile);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/internal/payments/reconciliations/" + run.runId()))
+                .body(run);
+    }
+    @GetMapping("/payments/reconciliations/{runId}")
+    public ResponseEntity<ReconciliationRunResponse> getRun(@PathVariable String runId) {
+        authorize();
+        return ResponseEntity.ok(paymentReconciliationService.status(runId));
+    }
+    private void authorize() {
+        AuthenticatedUser user = RequestContext.get();
+        if(user == null) {
+            throw new UnauthorizedException("Unauthenticated request");
+        }
+        if(user.role() != UserRole.SYSTEM) {
+            throw new AccessDeniedException("Only the SYSTEM role is allowed for internal APIs");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dev.order.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Incrementally maintained number and value of orders per (customer, state, currency).
+ * Rows are only written through CustomerOrderCountRepository.increment, in the same
+ * transaction as the order insert / state transition they account for.
+ */
+@Entity
+@Table(name = "customer_order_counts")
+@IdClass(CustomerOrderCount.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CustomerOrderCount {
+    @Id
+    @Column(name = "customer_id")
+    private Long customerId;
+    @Id
+    @Column(name = "order_state")
+    @Enumerated(EnumType.STRING)
+    private OrderState orderState;
+    @Id
+    @Column(nullable = false, length = 3)
+    private String currency;
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal totalAmount;
+
+    @Getter
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long customerId;
+        private OrderState orderState;
+        private String currency;
+    }
+}
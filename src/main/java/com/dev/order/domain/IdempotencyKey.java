@@ -0,0 +1,58 @@
+package com.dev.order.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Idempotency record of a payment request: the client's UUID key stored as BINARY(16) primary key.
+ * The primary key is the duplicate-request arbiter; rows older than the retention window are purged
+ * by IdempotencyKeyPurger, so the table (and its index) only covers keys that can still be replayed.
+ */
+@Entity
+@Table(
+        name = "idempotency_keys", indexes = {
+                //Purge scan: oldest keys first
+                @Index(name = "idx_idempotency_keys_created", columnList = "created_at")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class IdempotencyKey implements Persistable<UUID> {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "idempotency_key", length = 16, nullable = false, updatable = false)
+    private UUID idempotencyKey;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id", nullable = false, updatable = false)
+    private Payment payment;
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    //Assigned id: without this, save() would merge (SELECT first) instead of persisting
+    @Transient
+    private boolean newRecord;
+
+    public IdempotencyKey(UUID idempotencyKey, Payment payment) {
+        this.idempotencyKey = idempotencyKey;
+        this.payment = payment;
+        this.newRecord = true;
+    }
+
+    @Override
+    public UUID getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+}
@@ -15,20 +15,26 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 
 @Entity
 @Table(
         name = "orders", indexes = {
         //Composite Indexes
-                @Index(name = "idx_orders_customer_state", columnList = "customer_id,order_state"),
-                @Index(name = "idx_orders_customer_created_desc", columnList = "customer_id,created_at")
+                @Index(name = "idx_orders_customer_state_created", columnList = "customer_id,order_state,created_at"),
+                @Index(name = "idx_orders_customer_created_desc", columnList = "customer_id,created_at"),
+                //Expiry scan: oldest unpaid orders across all customers
+                @Index(name = "idx_orders_state_created", columnList = "order_state,created_at")
 })
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
+    //Pooled ids: each node reserves blocks of 50 from order_id_seq, so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_id_seq")
+    @SequenceGenerator(name = "order_id_seq", sequenceName = "order_id_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
     @Column(name = "customer_id", nullable = false)
@@ -46,6 +52,16 @@ public class Order {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+    //Optimistic concurrency: every transition is written as UPDATE ... WHERE version = ?
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    //Set while a payment of this order is PENDING: no second payment can start until that one is settled
+    @Column(name = "payment_pending", nullable = false)
+    private boolean paymentPending;
+    //Read-side association only; payments are created through Payment(order, ...)
+    @OneToMany(mappedBy = "order", fetch = FetchType.LAZY)
+    private List<Payment> payments = new ArrayList<>();
 
     public Order(Long customerId, BigDecimal totalAmount, String currency) {
         this.customerId = customerId;
@@ -54,16 +70,37 @@ public class Order {
         this.orderState = OrderState.CREATED;
     }
 
+    public void claimForPayment() {
+        if(this.orderState != OrderState.CREATED) {
+            throw new InvalidOrderStateException(
+                    "INVALID_ORDER_STATE", "Cannot process payment, because Order is currently not in 'CREATED' state.", getId());
+        }
+        if(this.paymentPending) {
+            throw new InvalidOrderStateException(
+                    "ORDER.PAYMENT_PENDING", "A payment for this order is still being processed.", getId());
+        }
+        this.paymentPending = true;
+    }
+    //The pending payment was declined (or never charged): the order can be paid again
+    public void releasePaymentClaim() {
+        this.paymentPending = false;
+    }
     public void markAsPaid() {
         if(this.orderState != OrderState.CREATED) {
             throw new InvalidOrderStateException("ORDER.INVALID_STATE.PAYMENT", "Only CREATED orders can be marked as PAID.", getId());
         }
         this.orderState = OrderState.PAID;
+        this.paymentPending = false;
     }
     public void cancel() {
         if(this.orderState != OrderState.CREATED) {
             throw new InvalidOrderStateException("ORDER.INVALID_STATE.CANCELLATION", "Only CREATED orders can be CANCELLED.", getId());
         }
+        //The processor may still approve it: wait for the outcome instead of cancelling a charged order
+        if(this.paymentPending) {
+            throw new InvalidOrderStateException(
+                    "ORDER.PAYMENT_PENDING", "Cannot cancel while a payment for this order is still being processed.", getId());
+        }
         this.orderState = OrderState.CANCELLED;
     }
     public void markAsShipped() {
@@ -0,0 +1,49 @@
+package com.dev.order.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transactional outbox row: written in the same transaction as the state change it describes,
+ * deleted by the relay once the sink has accepted it. The table only ever holds undelivered events.
+ * Delivery is at-least-once; consumers de-duplicate on eventId and order per aggregate on aggregateVersion
+ * (pooled ids are not commit-ordered across nodes).
+ */
+@Entity
+@Table(name = "outbox_events")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+    //Pooled ids keep the outbox insert inside the same JDBC batch as the business rows
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_id_seq")
+    @SequenceGenerator(name = "outbox_event_id_seq", sequenceName = "outbox_event_id_seq", allocationSize = 50)
+    @Column(name = "event_id")
+    private Long eventId;
+    @Column(name = "aggregate_type", nullable = false, length = 16, updatable = false)
+    private String aggregateType;
+    @Column(name = "aggregate_id", nullable = false, updatable = false)
+    private Long aggregateId;
+    @Column(name = "aggregate_version", updatable = false)
+    private Long aggregateVersion;
+    @Column(name = "event_type", nullable = false, length = 32, updatable = false)
+    private String eventType;
+    @Column(name = "payload", nullable = false, length = 1024, updatable = false)
+    private String payload;
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public OutboxEvent(String aggregateType, Long aggregateId, Long aggregateVersion, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.aggregateVersion = aggregateVersion;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+}
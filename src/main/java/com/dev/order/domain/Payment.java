@@ -18,13 +18,17 @@ import java.time.LocalDateTime;
 @Entity
 @Table(
         name = "payments", indexes = {
-                @Index(name = "idx_payments_order", columnList = "order_id")
+                @Index(name = "idx_payments_order", columnList = "order_id"),
+                //Async settlement recovery sweep over PENDING payments
+                @Index(name = "idx_payments_state_created", columnList = "payment_state,created_at")
 })
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Payment {
+    //Pooled ids: each node reserves blocks of 50 from payment_id_seq, so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_id_seq")
+    @SequenceGenerator(name = "payment_id_seq", sequenceName = "payment_id_seq", allocationSize = 50)
     @Column(name = "payment_id")
     private Long paymentId;
     @Column(name = "amount", nullable = false, precision = 19, scale = 4, updatable = false)
@@ -34,20 +38,18 @@ public class Payment {
     @Column(name = "payment_state", nullable = false)
     @Enumerated(EnumType.STRING)
     private PaymentState paymentState;
-    @Column(name = "idempotency_key", nullable = false, unique = true, length = 128)
-    private String idempotencyKey;
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
-    public Payment(Order order, BigDecimal amount, String currency, String idempotencyKey) {
+    //The request's idempotency key is recorded separately, in IdempotencyKey
+    public Payment(Order order, BigDecimal amount, String currency) {
         this.order = order;
         this.amount = amount;
         this.currency = currency;
         this.paymentState = PaymentState.PENDING;
-        this.idempotencyKey = idempotencyKey;
     }
     public Long getOrderId() {
         return order.getId();
@@ -64,4 +66,10 @@ public class Payment {
         }
         this.paymentState = PaymentState.FAILED;
     }
+    public void markAsRefundRequired() {
+        if(this.paymentState != PaymentState.PENDING) {
+            throw new InvalidPaymentStateException("PAYMENT.INVALID_STATE.REFUND", "Only PENDING payments can require a refund", getPaymentId());
+        }
+        this.paymentState = PaymentState.REFUND_REQUIRED;
+    }
 }
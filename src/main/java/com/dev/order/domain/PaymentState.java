@@ -3,5 +3,7 @@ package com.dev.order.domain;
 public enum PaymentState {
     PENDING,
     COMPLETED,
-    FAILED
+    FAILED,
+    //Approved by the processor after the order stopped awaiting payment: charged, must be refunded
+    REFUND_REQUIRED
 }
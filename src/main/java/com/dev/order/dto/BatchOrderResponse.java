@@ -0,0 +1,11 @@
+package com.dev.order.dto;
+
+import java.util.List;
+
+/**
+ * Result of a batch order creation; orders are listed in request order.
+ */
+public record BatchOrderResponse(
+        int count,
+        List<OrderResponse> orders
+) {}
@@ -0,0 +1,12 @@
+package com.dev.order.dto;
+
+import java.util.List;
+
+/**
+ * Multi-get result. notFound lists requested ids that are missing or not owned by the caller;
+ * the two cases are deliberately indistinguishable (resource cloaking).
+ */
+public record BulkOrderResponse(
+        List<OrderResponse> orders,
+        List<Long> notFound
+) {}
@@ -0,0 +1,12 @@
+package com.dev.order.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.List;
+
+public record BulkTransitionRequest(
+        @NotEmpty(message = "At least one order id is mandatory")
+        List<@NotNull @Positive Long> orderIds
+) {}
@@ -0,0 +1,24 @@
+package com.dev.order.dto;
+
+import com.dev.order.domain.OrderState;
+
+import java.util.List;
+
+/**
+ * Per-id outcome of a bulk transition; every distinct requested id appears in exactly one list.
+ * failed ids belong to a chunk that could not be committed (e.g. lock timeout) and are safe to resend:
+ * ids that did transition come back as wrongState on a retry.
+ * paymentPending ids are CREATED orders a cancel left alone because a payment of theirs is still PENDING;
+ * wrongState only holds orders that were not in the source state.
+ */
+public record BulkTransitionResponse(
+        OrderState targetState,
+        int requested,
+        List<Long> transitioned,
+        List<WrongState> wrongState,
+        List<Long> paymentPending,
+        List<Long> notFound,
+        List<Long> failed
+) {
+    public record WrongState(Long orderId, OrderState orderState) {}
+}
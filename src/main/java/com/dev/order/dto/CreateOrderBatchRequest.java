@@ -0,0 +1,20 @@
+package com.dev.order.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * The size cap is part of request validation, so an oversized batch is a 400 before it reaches the service.
+ * app.orders.max-batch-size can only lower it.
+ */
+public record CreateOrderBatchRequest(
+        @NotEmpty(message = "At least one order is mandatory")
+        @Size(max = CreateOrderBatchRequest.MAX_ORDERS, message = "At most " + CreateOrderBatchRequest.MAX_ORDERS + " orders per batch")
+        @Valid
+        List<CreateOrderRequest> orders
+) {
+    public static final int MAX_ORDERS = 500;
+}
@@ -0,0 +1,15 @@
+package com.dev.order.dto;
+
+import java.util.List;
+
+/**
+ * Keyset (cursor) page of orders.
+ * nextCursor is null when there are no further orders to read.
+ */
+public record CursorOrderResponse(
+        List<OrderResponse> content,
+        int requestedSize,
+        int appliedSize,
+        String nextCursor,
+        boolean last
+) {}
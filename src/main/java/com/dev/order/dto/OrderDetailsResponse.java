@@ -0,0 +1,21 @@
+package com.dev.order.dto;
+
+import com.dev.order.domain.OrderState;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order view with its payments embedded (GET /orders/{orderId}?include=payments).
+ */
+public record OrderDetailsResponse(
+        Long orderId,
+        Long customerId,
+        BigDecimal totalAmount,
+        String currency,
+        OrderState orderState,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        List<PaymentResponse> payments
+) {}
@@ -0,0 +1,8 @@
+package com.dev.order.dto;
+
+import java.util.List;
+
+public record OrderPaymentsResponse(
+        Long orderId,
+        List<PaymentResponse> payments
+) {}
@@ -0,0 +1,25 @@
+package com.dev.order.dto;
+
+import com.dev.order.domain.OrderState;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard summary of the caller's orders, read from the maintained counters.
+ * ordersByState always lists every state (zero when the customer has none);
+ * amounts are never summed across currencies.
+ */
+public record OrderSummaryResponse(
+        long totalOrders,
+        Map<OrderState, Long> ordersByState,
+        List<CurrencyTotal> currencies
+) {
+    public record CurrencyTotal(
+            String currency,
+            long orderCount,
+            BigDecimal totalAmount,
+            Map<OrderState, BigDecimal> amountByState
+    ) {}
+}
@@ -0,0 +1,21 @@
+package com.dev.order.dto;
+
+import java.util.Map;
+
+/**
+ * Outcome of a settlement reconciliation run.
+ * complete is false when some chunks failed; sending the same request again resumes with only those chunks.
+ * report is written once the run is complete.
+ */
+public record ReconciliationResponse(
+        String settlementFile,
+        boolean complete,
+        int chunks,
+        int resumedChunks,
+        int failedChunks,
+        long paymentsChecked,
+        long settlementRows,
+        Map<String, Long> mismatches,
+        String report,
+        long durationMillis
+) {}
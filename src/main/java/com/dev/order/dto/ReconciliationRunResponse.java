@@ -0,0 +1,35 @@
+package com.dev.order.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A reconciliation run started in the background.
+ * result is set once the run is FINISHED (it may still be incomplete, see ReconciliationResponse.complete);
+ * error is set when it FAILED. Either way, starting a new run for the same file resumes from its checkpoints.
+ */
+public record ReconciliationRunResponse(
+        String runId,
+        String settlementFile,
+        Status status,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        ReconciliationResponse result,
+        String error
+) {
+    public enum Status { RUNNING, FINISHED, FAILED }
+
+    public static ReconciliationRunResponse running(String runId, String settlementFile) {
+        return new ReconciliationRunResponse(runId, settlementFile, Status.RUNNING, LocalDateTime.now(),
+                null, null, null);
+    }
+
+    public ReconciliationRunResponse finished(ReconciliationResponse result) {
+        return new ReconciliationRunResponse(runId, settlementFile, Status.FINISHED, startedAt,
+                LocalDateTime.now(), result, null);
+    }
+
+    public ReconciliationRunResponse failed(String error) {
+        return new ReconciliationRunResponse(runId, settlementFile, Status.FAILED, startedAt,
+                LocalDateTime.now(), null, error);
+    }
+}
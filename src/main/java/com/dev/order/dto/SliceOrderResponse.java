@@ -0,0 +1,17 @@
+package com.dev.order.dto;
+
+import java.util.List;
+
+/**
+ * Count-free page of orders.
+ * totalElements is only populated when the client explicitly asks for it,
+ * and is then read from the incrementally maintained counters.
+ */
+public record SliceOrderResponse(
+        List<OrderResponse> content,
+        int page,
+        int requestedSize,
+        int appliedSize,
+        boolean hasNext,
+        Long totalElements
+) {}
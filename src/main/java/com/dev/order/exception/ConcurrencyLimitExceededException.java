@@ -0,0 +1,11 @@
+package com.dev.order.exception;
+
+/**
+ * Raised when the adaptive concurrency limit is reached and the request is shed at the filter.
+ * Thrown for every excess request during an overload, so no stack trace is captured.
+ */
+public class ConcurrencyLimitExceededException extends ServiceOverloadedException {
+    public ConcurrencyLimitExceededException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds, false);
+    }
+}
@@ -0,0 +1,13 @@
+package com.dev.order.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ConcurrentOrderModificationException extends BusinessRulesViolationException implements OrderContext {
+    private final Long orderId;
+    public ConcurrentOrderModificationException(Long orderId) {
+        super("ORDER.CONCURRENT_MODIFICATION",
+                "The order was modified by a concurrent request. Re-read the order before retrying.");
+        this.orderId = orderId;
+    }
+}
@@ -10,6 +10,8 @@ import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -184,6 +186,16 @@ public class GlobalExceptionHandler {
                 false
         );
     }
+    @ExceptionHandler(ReconciliationRunNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleReconciliationRunNotFound(ReconciliationRunNotFoundException ex) {
+        log.warn("Reconciliation run not found. runId={}", ex.getRunId());
+        return buildError(
+                HttpStatus.NOT_FOUND,
+                "RECONCILIATION_RUN_NOT_FOUND",
+                ex.getMessage(),
+                false
+        );
+    }
     //Handle client semantic error in request
     @ExceptionHandler(InvalidRequestException.class)
     public ResponseEntity<ErrorResponse> handleInvalidRequest(InvalidRequestException ex) {
@@ -195,6 +207,70 @@ public class GlobalExceptionHandler {
                 false
                 );
     }
+    //Handle lost optimistic-lock races that surface at commit (version mismatch)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        log.warn("Concurrent modification detected at commit. message={}", ex.getMessage());
+        return buildError(
+                HttpStatus.CONFLICT,
+                "CONCURRENT_MODIFICATION",
+                "The resource was modified by a concurrent request",
+                true
+        );
+    }
+    //Load shedding: a bounded queue is full, the client should back off and retry
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(ServiceOverloadedException ex) {
+        if (ex instanceof ConcurrencyLimitExceededException) {
+            //Debug only: one per excess request during an overload (counted in http.concurrency.rejected)
+            log.debug("Request shed. reason={}", ex.getMessage());
+        } else {
+            log.warn("Request shed. reason={}", ex.getMessage());
+        }
+        ResponseEntity<ErrorResponse> errorResponse = buildError(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "SERVICE_OVERLOADED",
+                ex.getMessage(),
+                true
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse.getBody());
+    }
+    //Per-customer rate limit (authentication filter): retry once the bucket has refilled
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceeded(RateLimitExceededException ex) {
+        //Debug only: a flooding client would otherwise flood the log too (counted in http.requests.rate.limited)
+        log.debug("Request rate limited. reason={}", ex.getMessage());
+        ResponseEntity<ErrorResponse> errorResponse = buildError(
+                HttpStatus.TOO_MANY_REQUESTS,
+                "RATE_LIMITED",
+                ex.getMessage(),
+                true
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse.getBody());
+    }
+    //Payment processor guards: deadline exceeded (outcome unknown) or failed fast (nothing settled)
+    @ExceptionHandler(PaymentProcessorException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentProcessor(PaymentProcessorException ex) {
+        log.warn("Payment processor unavailable. reason={}, message={}", ex.getReason(), ex.getMessage());
+        if(ex.getReason() == PaymentProcessorException.Reason.TIMEOUT) {
+            return buildError(
+                    HttpStatus.GATEWAY_TIMEOUT,
+                    "PAYMENT_PROCESSOR_TIMEOUT",
+                    "Payment is still being processed, retry with the same Idempotency-Key",
+                    true
+            );
+        }
+        return buildError(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "PAYMENT_PROCESSOR_UNAVAILABLE",
+                ex.getMessage(),
+                true
+        );
+    }
     //Infrastructure / Unexpected Exceptions
     @ExceptionHandler(TimeoutException.class)
     public ResponseEntity<ErrorResponse> handleTimeout(TimeoutException ex) {
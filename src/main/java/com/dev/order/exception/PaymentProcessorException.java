@@ -0,0 +1,28 @@
+package com.dev.order.exception;
+
+import lombok.Getter;
+
+/**
+ * The payment processor could not be used for this call. The payment, if already stored, stays PENDING.
+ */
+@Getter
+public class PaymentProcessorException extends RuntimeException {
+    public enum Reason {
+        //Failed fast, the processor was not called
+        CIRCUIT_OPEN,
+        BULKHEAD_FULL,
+        //The processor was called
+        TIMEOUT,
+        FAILED
+    }
+
+    private final Reason reason;
+    public PaymentProcessorException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+    public PaymentProcessorException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+}
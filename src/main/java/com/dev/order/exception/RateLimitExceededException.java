@@ -0,0 +1,16 @@
+package com.dev.order.exception;
+
+import lombok.Getter;
+
+/**
+ * Raised when a customer exceeds their request rate for an endpoint class.
+ * Thrown on every rejected request of a flooding client, so no stack trace is captured.
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final long retryAfterSeconds;
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,12 @@
+package com.dev.order.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ReconciliationRunNotFoundException extends RuntimeException {
+    private final String runId;
+    public ReconciliationRunNotFoundException(String runId) {
+        super("Reconciliation run not found for the given identifier.");
+        this.runId = runId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.dev.order.exception;
+
+import lombok.Getter;
+
+/**
+ * Raised when a bounded internal resource is full and the request is shed instead of queued.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    protected ServiceOverloadedException(String message, long retryAfterSeconds, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
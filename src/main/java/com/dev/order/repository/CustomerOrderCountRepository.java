@@ -0,0 +1,32 @@
+package com.dev.order.repository;
+
+import com.dev.order.domain.CustomerOrderCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface CustomerOrderCountRepository extends JpaRepository<CustomerOrderCount, CustomerOrderCount.Key> {
+    //Primary-key prefix read: at most one row per (state, currency) of the customer
+    List<CustomerOrderCount> findByCustomerId(Long customerId);
+
+    //Single-statement upsert: a primary-key write, never a scan of orders
+    @Modifying
+    @Query(value = """
+            INSERT INTO customer_order_counts (customer_id, order_state, currency, order_count, total_amount)
+            VALUES (:customerId, :orderState, :currency, :delta, :amountDelta)
+            ON DUPLICATE KEY UPDATE order_count = order_count + :delta, total_amount = total_amount + :amountDelta
+            """, nativeQuery = true)
+    void increment(
+            @Param("customerId") Long customerId,
+            @Param("orderState") String orderState,
+            @Param("currency") String currency,
+            @Param("delta") long delta,
+            @Param("amountDelta") BigDecimal amountDelta
+    );
+}
@@ -0,0 +1,41 @@
+package com.dev.order.repository;
+
+import com.dev.order.domain.IdempotencyKey;
+import com.dev.order.domain.Payment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, UUID> {
+    //Replay lookup: one primary-key probe joined to the payment
+    @Query("select k.payment from IdempotencyKey k where k.idempotencyKey = :idempotencyKey")
+    Optional<Payment> findPaymentByIdempotencyKey(@Param("idempotencyKey") UUID idempotencyKey);
+    //Settlement: keys of the payments just settled, for the replay cache
+    @Query("select k from IdempotencyKey k where k.payment.paymentId in :paymentIds")
+    List<IdempotencyKey> findByPaymentIds(@Param("paymentIds") Collection<Long> paymentIds);
+    //Forward-only scan for warming the idempotency key filter (MySQL streams rows with fetch size MIN_VALUE)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("select k.idempotencyKey from IdempotencyKey k")
+    Stream<UUID> streamAllIdempotencyKeys();
+    //Purge: a bounded range of expired keys at the old end of idx_idempotency_keys_created
+    @Modifying
+    @Query(value = """
+            DELETE FROM idempotency_keys
+            WHERE created_at < :expiredBefore
+            ORDER BY created_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    int deleteExpired(@Param("expiredBefore") LocalDateTime expiredBefore, @Param("limit") int limit);
+}
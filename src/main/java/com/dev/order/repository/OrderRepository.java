@@ -7,22 +7,219 @@ package com.dev.order.repository;
 
 import com.dev.order.domain.Order;
 import com.dev.order.domain.OrderState;
+import com.dev.order.dto.OrderResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Optional<Order> findByIdAndCustomerId(Long id, Long customerId);
-    //For the 'All' view
+    boolean existsByIdAndCustomerId(Long id, Long customerId);
+    //Order view with payments embedded: one statement, no N+1
+    @Query("""
+            select o from Order o
+            left join fetch o.payments
+            where o.id = :id and o.customerId = :customerId
+            """)
+    Optional<Order> findWithPaymentsByIdAndCustomerId(@Param("id") Long id, @Param("customerId") Long customerId);
+    //For the 'All' view (entity path)
     Page<Order> findByCustomerId(Long customerId, Pageable pageable);
-    //For the 'Filtered' view
+    //For the 'Filtered' view (entity path)
     Page<Order> findByCustomerIdAndOrderState(
             Long customerId,
             OrderState orderState,
             Pageable pageable
     );
+
+    /*
+     * Read-only projections: the response records are built straight from the result set,
+     * so nothing is hydrated into the persistence context (no dirty-checking snapshots, no proxies).
+     */
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.id = :id and o.customerId = :customerId
+            """)
+    Optional<OrderResponse> findResponseByIdAndCustomerId(@Param("id") Long id, @Param("customerId") Long customerId);
+    //Multi-get: one IN (...) statement, foreign ids are filtered out by customer_id
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.id in :ids and o.customerId = :customerId
+            """)
+    List<OrderResponse> findResponsesByIdInAndCustomerId(
+            @Param("ids") Collection<Long> ids,
+            @Param("customerId") Long customerId
+    );
+    //For the 'All' view
+    @Query(value = """
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId
+            """,
+            countQuery = "select count(o) from Order o where o.customerId = :customerId")
+    Page<OrderResponse> findResponsesByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+    //For the 'Filtered' view
+    @Query(value = """
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId and o.orderState = :orderState
+            """,
+            countQuery = "select count(o) from Order o where o.customerId = :customerId and o.orderState = :orderState")
+    Page<OrderResponse> findResponsesByCustomerIdAndOrderState(
+            @Param("customerId") Long customerId,
+            @Param("orderState") OrderState orderState,
+            Pageable pageable
+    );
+    //Count-free variants: a Slice reads size + 1 rows and never issues COUNT(*)
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId
+            """)
+    Slice<OrderResponse> findResponseSliceByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId and o.orderState = :orderState
+            """)
+    Slice<OrderResponse> findResponseSliceByCustomerIdAndOrderState(
+            @Param("customerId") Long customerId,
+            @Param("orderState") OrderState orderState,
+            Pageable pageable
+    );
+
+    /*
+     * Keyset (cursor) pagination.
+     * Seek predicates on (created_at, order_id) walk idx_orders_customer_created_desc and
+     * idx_orders_customer_state_created in index order (InnoDB appends order_id to both),
+     * so no rows are skipped, no filesort happens and page N costs the same as page 0.
+     * The Pageable is only used as a LIMIT; it must be unsorted.
+     */
+    //For the 'All' view - first page
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderResponse> findResponsesByCustomerIdNewestFirst(@Param("customerId") Long customerId, Pageable limit);
+    //For the 'All' view - subsequent pages
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId
+              and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :orderId))
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderResponse> findResponsesByCustomerIdAfterCursor(
+            @Param("customerId") Long customerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("orderId") Long orderId,
+            Pageable limit
+    );
+    //For the 'Filtered' view - first page
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId and o.orderState = :orderState
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderResponse> findResponsesByCustomerIdAndOrderStateNewestFirst(
+            @Param("customerId") Long customerId,
+            @Param("orderState") OrderState orderState,
+            Pageable limit
+    );
+    //For the 'Filtered' view - subsequent pages
+    @Query("""
+            select new com.dev.order.dto.OrderResponse(
+                o.id, o.customerId, o.totalAmount, o.currency, o.orderState, o.createdAt, o.updatedAt)
+            from Order o
+            where o.customerId = :customerId
+              and o.orderState = :orderState
+              and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :orderId))
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderResponse> findResponsesByCustomerIdAndOrderStateAfterCursor(
+            @Param("customerId") Long customerId,
+            @Param("orderState") OrderState orderState,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("orderId") Long orderId,
+            Pageable limit
+    );
+
+    /*
+     * Set-based transitions (SYSTEM bulk fulfilment).
+     * Candidates are locked in primary-key order, then moved with one conditional UPDATE per chunk.
+     * No entity is loaded; the version bump makes concurrent entity transitions of the same orders fail with 409.
+     */
+    @Query(value = """
+            SELECT order_id AS orderId, customer_id AS customerId, total_amount AS totalAmount,
+                   currency AS currency, order_state AS orderState, version AS version,
+                   payment_pending AS paymentPending
+            FROM orders
+            WHERE order_id IN (:ids)
+            ORDER BY order_id
+            FOR UPDATE
+            """, nativeQuery = true)
+    List<OrderTransitionCandidate> lockForTransition(@Param("ids") Collection<Long> ids);
+    @Modifying
+    @Query("""
+            update Order o
+            set o.orderState = :toState, o.version = o.version + 1, o.updatedAt = :updatedAt
+            where o.id in :ids and o.orderState = :fromState
+            """)
+    int transitionAll(
+            @Param("ids") Collection<Long> ids,
+            @Param("fromState") OrderState fromState,
+            @Param("toState") OrderState toState,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+    /*
+     * Expiry of unpaid orders, driven by idx_orders_state_created.
+     * Several workers claim disjoint batches: rows locked by another worker (or by a settlement) are skipped.
+     * Orders with a payment still being settled are left alone; the settlement decides their fate.
+     * payment_pending is set by the payment's own versioned UPDATE of this row, so there is no gap: an acceptance in
+     * flight holds the row lock (skipped here), and one that runs after this claim fails its version check.
+     */
+    @Query(value = """
+            SELECT o.order_id AS orderId, o.customer_id AS customerId, o.total_amount AS totalAmount,
+                   o.currency AS currency, o.order_state AS orderState, o.version AS version,
+                   o.payment_pending AS paymentPending
+            FROM orders o
+            WHERE o.order_state = 'CREATED' AND o.created_at < :expiredBefore AND o.payment_pending = FALSE
+            ORDER BY o.created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OrderTransitionCandidate> claimExpired(@Param("expiredBefore") LocalDateTime expiredBefore, @Param("limit") int limit);
+    //Backlog gauge: capped so a large backlog never turns into a long index scan
+    @Query(value = """
+            SELECT COUNT(*) FROM (
+                SELECT 1 FROM orders
+                WHERE order_state = 'CREATED' AND created_at < :expiredBefore AND payment_pending = FALSE
+                LIMIT :cap
+            ) expired
+            """, nativeQuery = true)
+    long countExpired(@Param("expiredBefore") LocalDateTime expiredBefore, @Param("cap") int cap);
 }
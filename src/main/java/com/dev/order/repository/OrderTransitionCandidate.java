@@ -0,0 +1,17 @@
+package com.dev.order.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Row view of an order locked for a set-based transition.
+ * Carries what the counters and the outbox need, without hydrating the entity.
+ */
+public interface OrderTransitionCandidate {
+    Long getOrderId();
+    Long getCustomerId();
+    BigDecimal getTotalAmount();
+    String getCurrency();
+    String getOrderState();
+    Long getVersion();
+    Boolean getPaymentPending();
+}
@@ -0,0 +1,21 @@
+package com.dev.order.repository;
+
+import com.dev.order.domain.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    //Relay claim: oldest undelivered rows by primary key; rows held by another relay are skipped, not waited on
+    @Query(value = """
+            SELECT * FROM outbox_events
+            ORDER BY event_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("limit") int limit);
+}
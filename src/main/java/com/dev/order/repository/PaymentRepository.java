@@ -1,12 +1,97 @@
 package com.dev.order.repository;
 
 import com.dev.order.domain.Payment;
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.PaymentResponse;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
-    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+    //Ownership-checked projection in one statement: payment joined to its order and filtered by customer
+    @Query("""
+            select new com.dev.order.dto.PaymentResponse(p.paymentId, o.id, p.amount, p.paymentState, p.createdAt)
+            from Payment p join p.order o
+            where p.paymentId = :paymentId and o.customerId = :customerId
+            """)
+    Optional<PaymentResponse> findResponseByIdAndCustomerId(
+            @Param("paymentId") Long paymentId,
+            @Param("customerId") Long customerId
+    );
+    //Multi-get: one IN (...) statement, foreign payments are filtered out through the owning order
+    @Query("""
+            select new com.dev.order.dto.PaymentResponse(p.paymentId, o.id, p.amount, p.paymentState, p.createdAt)
+            from Payment p join p.order o
+            where p.paymentId in :paymentIds and o.customerId = :customerId
+            """)
+    List<PaymentResponse> findResponsesByIdInAndCustomerId(
+            @Param("paymentIds") Collection<Long> paymentIds,
+            @Param("customerId") Long customerId
+    );
+    //Payments of one owned order, driven by idx_payments_order
+    @Query("""
+            select new com.dev.order.dto.PaymentResponse(p.paymentId, o.id, p.amount, p.paymentState, p.createdAt)
+            from Payment p join p.order o
+            where o.id = :orderId and o.customerId = :customerId
+            order by p.createdAt desc, p.paymentId desc
+            """)
+    List<PaymentResponse> findResponsesByOrderIdAndCustomerId(
+            @Param("orderId") Long orderId,
+            @Param("customerId") Long customerId
+    );
+    /*
+     * Async settlement.
+     * The snapshot read feeds the processor; the locked re-read (payment and order rows, in payment_id order
+     * so concurrent settlers never deadlock) guarantees each PENDING payment is transitioned exactly once.
+     */
+    List<Payment> findByPaymentIdInAndPaymentState(Collection<Long> paymentIds, PaymentState paymentState);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select p from Payment p join fetch p.order
+            where p.paymentId in :paymentIds and p.paymentState = :paymentState
+            order by p.paymentId
+            """)
+    List<Payment> findForSettlement(
+            @Param("paymentIds") Collection<Long> paymentIds,
+            @Param("paymentState") PaymentState paymentState
+    );
+    //Recovery sweep: oldest first, driven by idx_payments_state_created
+    @Query("""
+            select p.paymentId from Payment p
+            where p.paymentState = :paymentState and p.createdAt < :createdBefore
+            order by p.createdAt
+            """)
+    List<Long> findIdsByPaymentStateAndCreatedBefore(
+            @Param("paymentState") PaymentState paymentState,
+            @Param("createdBefore") LocalDateTime createdBefore,
+            Pageable limit
+    );
+    /*
+     * Reconciliation: keyset pages inside one payment_id chunk, read straight off the primary key.
+     * lastId is inclusive; the caller passes the previous page's last id as afterId.
+     */
+    @Query("""
+            select p.paymentId as paymentId, p.amount as amount, p.currency as currency,
+                   p.paymentState as paymentState, p.createdAt as createdAt
+            from Payment p
+            where p.paymentId > :afterId and p.paymentId <= :lastId
+            order by p.paymentId
+            """)
+    List<ReconciliationPayment> findReconciliationPage(
+            @Param("afterId") Long afterId,
+            @Param("lastId") Long lastId,
+            Pageable limit
+    );
+    @Query("select max(p.paymentId) from Payment p")
+    Optional<Long> findMaxPaymentId();
 }
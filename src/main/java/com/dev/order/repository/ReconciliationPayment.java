@@ -0,0 +1,17 @@
+package com.dev.order.repository;
+
+import com.dev.order.domain.PaymentState;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Row view of a payment for settlement reconciliation; no entity, no order join.
+ */
+public interface ReconciliationPayment {
+    Long getPaymentId();
+    BigDecimal getAmount();
+    String getCurrency();
+    PaymentState getPaymentState();
+    LocalDateTime getCreatedAt();
+}
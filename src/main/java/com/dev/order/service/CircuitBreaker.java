@@ -0,0 +1,158 @@
+package com.dev.order.service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based sliding-window circuit breaker.
+ * Opens when the failure rate or the slow-call rate over the last windowSize calls crosses its threshold,
+ * rejects every call while open, then lets a few trial calls through (half-open).
+ * A failed trial reopens it for twice as long as before (capped), so a processor that stays down
+ * is probed less and less often; a successful round of trials closes it and resets the backoff.
+ */
+final class CircuitBreaker {
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final byte[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final long maxOpenNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long currentOpenNanos;
+    private long openUntil;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration slowCallThreshold,
+                   double slowCallRateThreshold, Duration openDuration, Duration maxOpenDuration, int halfOpenCalls,
+                   LongSupplier nanoClock) {
+        this.window = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.maxOpenNanos = Math.max(openNanos, maxOpenDuration.toNanos());
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.currentOpenNanos = openNanos;
+    }
+
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a permission that was granted but never used (the call did not reach the processor).
+     */
+    synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    synchronized void onSuccess(long durationNanos) {
+        record(durationNanos > slowCallNanos ? SLOW : SUCCESS);
+    }
+
+    synchronized void onFailure() {
+        record(FAILURE);
+    }
+
+    synchronized boolean isOpen() {
+        return state == State.OPEN && nanoClock.getAsLong() - openUntil < 0;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(byte outcome) {
+        switch (state) {
+            //Late result of a call that started before the breaker opened
+            case OPEN -> { }
+            case HALF_OPEN -> {
+                if (outcome != SUCCESS) {
+                    open(Math.min(currentOpenNanos * 2, maxOpenNanos));
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    state = State.CLOSED;
+                    currentOpenNanos = openNanos;
+                    resetWindow();
+                }
+            }
+            case CLOSED -> {
+                if (recorded == window.length) {
+                    forget(window[next]);
+                } else {
+                    recorded++;
+                }
+                window[next] = outcome;
+                if (outcome == FAILURE) {
+                    failures++;
+                } else if (outcome == SLOW) {
+                    slowCalls++;
+                }
+                next = (next + 1) % window.length;
+                if (recorded >= minimumCalls
+                        && ((double) failures / recorded >= failureRateThreshold
+                        || (double) slowCalls / recorded >= slowCallRateThreshold)) {
+                    open(openNanos);
+                }
+            }
+        }
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILURE) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void open(long durationNanos) {
+        state = State.OPEN;
+        currentOpenNanos = durationNanos;
+        openUntil = nanoClock.getAsLong() + durationNanos;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Append-only NDJSON file, one event per line. A batch is written with a single write call
+ * and optionally forced to disk before the relay deletes the rows.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file", matchIfMissing = true)
+@Slf4j
+public class FileOutboxSink implements OutboxSink {
+    private final FileChannel channel;
+    private final boolean fsync;
+
+    public FileOutboxSink(@Value("${app.outbox.file.path:./data/outbox-events.ndjson}") Path path,
+                          @Value("${app.outbox.file.fsync:true}") boolean fsync) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.fsync = fsync;
+        log.info("Outbox file sink opened. path={}, fsync={}", path.toAbsolutePath(), fsync);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 256);
+        for (OutboxEvent event : events) {
+            lines.append("{\"eventId\":").append(event.getEventId())
+                    .append(",\"eventType\":\"").append(event.getEventType())
+                    .append("\",\"aggregateType\":\"").append(event.getAggregateType())
+                    .append("\",\"aggregateId\":").append(event.getAggregateId())
+                    .append(",\"aggregateVersion\":").append(event.getAggregateVersion())
+                    .append(",\"createdAt\":\"").append(event.getCreatedAt())
+                    .append("\",\"payload\":").append(event.getPayload())
+                    .append("}\n");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append outbox events", ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+}
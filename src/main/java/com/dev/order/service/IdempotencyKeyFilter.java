@@ -0,0 +1,110 @@
+package com.dev.order.service;
+
+import com.dev.order.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Negative cache in front of the idempotency-key lookup.
+ * A definite miss means this key has never been inserted, so the payment path can skip
+ * the idempotency-key lookup. The primary key of idempotency_keys stays the final arbiter
+ * (keys written by other instances are not in this node's filter). Purged keys stay in the filter until
+ * restart; that only costs a lookup that finds nothing. Keys are in canonical (lower-case) UUID form.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyFilter {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final BloomFilter bloomFilter;
+    private final boolean enabled;
+    private final Counter skippedLookups;
+    private final Counter checkedLookups;
+    private final Counter falsePositives;
+    private volatile boolean warmedUp;
+
+    public IdempotencyKeyFilter(IdempotencyKeyRepository idempotencyKeyRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.payments.idempotency-filter.enabled:true}") boolean enabled,
+                                @Value("${app.payments.idempotency-filter.expected-keys:10000000}") long expectedKeys,
+                                @Value("${app.payments.idempotency-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.enabled = enabled;
+        this.bloomFilter = BloomFilter.create(expectedKeys, falsePositiveRate);
+        this.skippedLookups = Counter.builder("payments.idempotency.filter.lookups")
+                .tag("result", "skipped")
+                .description("Idempotency-key lookups skipped on a definite filter miss")
+                .register(meterRegistry);
+        this.checkedLookups = Counter.builder("payments.idempotency.filter.lookups")
+                .tag("result", "checked")
+                .description("Idempotency-key lookups sent to the database")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("payments.idempotency.filter.false.positives")
+                .description("Filter said 'possibly present' but the key was not in the database")
+                .register(meterRegistry);
+        Gauge.builder("payments.idempotency.filter.expected.fpp", bloomFilter, BloomFilter::expectedFalsePositiveRate)
+                .description("Expected false-positive rate at the current fill")
+                .register(meterRegistry);
+        Gauge.builder("payments.idempotency.filter.memory", bloomFilter, BloomFilter::memoryBytes)
+                .baseUnit("bytes")
+                .description("Memory held by the filter bit array")
+                .register(meterRegistry);
+        Gauge.builder("payments.idempotency.filter.keys", bloomFilter, BloomFilter::insertions)
+                .description("Keys inserted into the filter")
+                .register(meterRegistry);
+        log.info("Idempotency key filter sized. enabled={}, expectedKeys={}, falsePositiveRate={}, memoryBytes={}",
+                enabled, expectedKeys, falsePositiveRate, bloomFilter.memoryBytes());
+    }
+
+    /**
+     * Streams every existing key into the filter once the application is ready.
+     * Until this completes, every key is reported as possibly present (plain DB lookup).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (Stream<UUID> keys = idempotencyKeyRepository.streamAllIdempotencyKeys()) {
+            keys.forEach(key -> bloomFilter.put(key.toString()));
+        }
+        warmedUp = true;
+        log.info("Idempotency key filter warmed up. keys={}, tookMs={}",
+                bloomFilter.insertions(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @return false only if the key has definitely never been inserted
+     */
+    public boolean mightContain(String idempotencyKey) {
+        if (!enabled || !warmedUp || bloomFilter.mightContain(idempotencyKey)) {
+            checkedLookups.increment();
+            return true;
+        }
+        skippedLookups.increment();
+        return false;
+    }
+
+    public void put(String idempotencyKey) {
+        if (enabled) {
+            bloomFilter.put(idempotencyKey);
+        }
+    }
+
+    public void recordFalsePositive() {
+        if (enabled && warmedUp) {
+            falsePositives.increment();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.dev.order.service;
+
+import com.dev.order.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes idempotency keys older than the retention window.
+ * Each run walks idx_idempotency_keys_created from the oldest end in small DELETE ... LIMIT batches,
+ * one short transaction each with a pause in between, so purging never holds many row locks or
+ * produces a large replication event. Several nodes purging at once only split the work.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyPurger {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final Counter purged;
+    private final Counter failures;
+    private final Timer runDuration;
+    private volatile boolean running;
+    private PeriodicTask task;
+
+    public IdempotencyKeyPurger(IdempotencyKeyRepository idempotencyKeyRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.payments.idempotency-keys.purge.enabled:true}") boolean enabled,
+                                @Value("${app.payments.idempotency-keys.retention:24h}") Duration retention,
+                                @Value("${app.payments.idempotency-keys.purge.interval:1m}") Duration purgeInterval,
+                                @Value("${app.payments.idempotency-keys.purge.batch-size:1000}") int batchSize,
+                                @Value("${app.payments.idempotency-keys.purge.batch-pause:50ms}") Duration batchPause) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.retention = retention;
+        this.purgeInterval = purgeInterval;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.purged = Counter.builder("payments.idempotency.keys.purged")
+                .description("Expired idempotency keys deleted")
+                .register(meterRegistry);
+        this.failures = Counter.builder("payments.idempotency.keys.purge.failures")
+                .description("Purge runs that stopped on an error; the next run continues")
+                .register(meterRegistry);
+        this.runDuration = Timer.builder("payments.idempotency.keys.purge.duration")
+                .description("Time per purge run, pauses included")
+                .register(meterRegistry);
+        log.info("Idempotency key purge configured. enabled={}, retention={}, interval={}, batchSize={}",
+                enabled, retention, purgeInterval, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        task = PeriodicTask.start("idempotency-purge", purgeInterval, purgeInterval, this::purge);
+        log.info("Idempotency key purge started.");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (task != null) {
+            task.stop();
+        }
+    }
+
+    long purge() {
+        long started = System.nanoTime();
+        //Fixed cutoff per run: keys that expire while the run is going wait for the next one
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(retention);
+        long deletedTotal = 0;
+        try {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteExpired(expiredBefore, batchSize));
+                deletedTotal += deleted;
+                purged.increment(deleted);
+                if (deleted == batchSize && running) {
+                    Thread.sleep(batchPause.toMillis());
+                }
+            } while (deleted == batchSize && running);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.error("Idempotency key purge failed. deleted={}", deletedTotal, ex);
+        } finally {
+            runDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        if (deletedTotal > 0) {
+            log.info("Expired idempotency keys purged. deleted={}, expiredBefore={}", deletedTotal, expiredBefore);
+        }
+        return deletedTotal;
+    }
+}
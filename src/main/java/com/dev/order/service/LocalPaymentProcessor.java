@@ -0,0 +1,62 @@
+package com.dev.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for the payment provider with injectable latency, error and decline rates.
+ * Defaults behave like a healthy provider; degrade(...) lets load tests change behaviour at runtime.
+ */
+@Component
+@Slf4j
+public class LocalPaymentProcessor implements PaymentProcessor {
+    private volatile Duration latency;
+    private volatile Duration latencyJitter;
+    private volatile double errorRate;
+    private volatile double declineRate;
+
+    public LocalPaymentProcessor(@Value("${app.payments.processor.stub.latency:20ms}") Duration latency,
+                                 @Value("${app.payments.processor.stub.latency-jitter:10ms}") Duration latencyJitter,
+                                 @Value("${app.payments.processor.stub.error-rate:0.0}") double errorRate,
+                                 @Value("${app.payments.processor.stub.decline-rate:0.0}") double declineRate) {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.errorRate = errorRate;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public Decision settle(SettlementRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitterMillis = latencyJitter.toMillis();
+        long sleepMillis = latency.toMillis() + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Settlement interrupted", ex);
+            }
+        }
+        if (random.nextDouble() < errorRate) {
+            throw new IllegalStateException("Simulated payment processor failure");
+        }
+        if (random.nextDouble() < declineRate) {
+            log.debug("Local settlement declined. paymentId={}", request.paymentId());
+            return Decision.DECLINED;
+        }
+        log.debug("Local settlement approved. paymentId={}", request.paymentId());
+        return Decision.APPROVED;
+    }
+
+    public void degrade(Duration latency, Duration latencyJitter, double errorRate) {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.errorRate = errorRate;
+        log.warn("Local payment processor degraded. latency={}, jitter={}, errorRate={}", latency, latencyJitter, errorRate);
+    }
+}
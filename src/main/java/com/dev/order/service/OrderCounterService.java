@@ -0,0 +1,126 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.CustomerOrderCount;
+import com.dev.order.domain.Order;
+import com.dev.order.domain.OrderState;
+import com.dev.order.dto.OrderSummaryResponse;
+import com.dev.order.repository.CustomerOrderCountRepository;
+import com.dev.order.repository.OrderTransitionCandidate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains per-customer, per-state, per-currency order counts and amounts incrementally,
+ * so listings that need a total and the summary endpoint never aggregate over the customer's orders.
+ * Must be called inside the transaction that creates or transitions the order.
+ */
+@Service
+@Slf4j
+public class OrderCounterService {
+    //Fixed upsert order, so concurrent bulk transitions take counter row locks in the same sequence
+    private static final Comparator<CustomerOrderCount.Key> KEY_ORDER =
+            Comparator.comparing(CustomerOrderCount.Key::getCustomerId).thenComparing(CustomerOrderCount.Key::getCurrency);
+    private final CustomerOrderCountRepository customerOrderCountRepository;
+
+    public OrderCounterService(CustomerOrderCountRepository customerOrderCountRepository) {
+        this.customerOrderCountRepository = customerOrderCountRepository;
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Order order) {
+        increment(order, order.getOrderState(), 1);
+    }
+    //One upsert per (customer, state, currency) for the whole batch instead of one per order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<Order> orders) {
+        orders.stream()
+                .collect(Collectors.groupingBy(
+                        order -> new CustomerOrderCount.Key(order.getCustomerId(), order.getOrderState(), order.getCurrency())))
+                .forEach((key, group) -> customerOrderCountRepository.increment(
+                        key.getCustomerId(), key.getOrderState().name(), key.getCurrency(), group.size(),
+                        group.stream().map(Order::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add)));
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Order order, OrderState previousState) {
+        if (previousState == order.getOrderState()) {
+            return;
+        }
+        increment(order, previousState, -1);
+        increment(order, order.getOrderState(), 1);
+        log.debug("Order counters updated. orderId={}, {} -> {}", order.getId(), previousState, order.getOrderState());
+    }
+    //Set-based transitions: one decrement and one increment per (customer, currency) in the chunk
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(List<OrderTransitionCandidate> orders, OrderState previousState, OrderState newState) {
+        orders.stream()
+                .collect(Collectors.groupingBy(
+                        order -> new CustomerOrderCount.Key(order.getCustomerId(), previousState, order.getCurrency()),
+                        () -> new TreeMap<>(KEY_ORDER),
+                        Collectors.toList()))
+                .forEach((key, group) -> {
+                    BigDecimal amount = group.stream()
+                            .map(OrderTransitionCandidate::getTotalAmount)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    customerOrderCountRepository.increment(
+                            key.getCustomerId(), previousState.name(), key.getCurrency(), -group.size(), amount.negate());
+                    customerOrderCountRepository.increment(
+                            key.getCustomerId(), newState.name(), key.getCurrency(), group.size(), amount);
+                });
+    }
+    //Total for one state, or across all states when orderState is null
+    @Transactional(readOnly = true)
+    public long getTotal(Long customerId, OrderState orderState) {
+        return customerOrderCountRepository.findByCustomerId(customerId).stream()
+                .filter(count -> orderState == null || count.getOrderState() == orderState)
+                .mapToLong(CustomerOrderCount::getOrderCount)
+                .sum();
+    }
+    /**
+     * Counts per state and amounts per currency, folded from the customer's counter rows.
+     * One primary-key prefix read (states x currencies rows), independent of how many orders exist.
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryResponse getSummary(Long customerId) {
+        Map<OrderState, Long> ordersByState = new EnumMap<>(OrderState.class);
+        for (OrderState orderState : OrderState.values()) {
+            ordersByState.put(orderState, 0L);
+        }
+        Map<String, List<CustomerOrderCount>> rowsByCurrency = new TreeMap<>();
+        long totalOrders = 0;
+        for (CustomerOrderCount count : customerOrderCountRepository.findByCustomerId(customerId)) {
+            ordersByState.merge(count.getOrderState(), count.getOrderCount(), Long::sum);
+            rowsByCurrency.computeIfAbsent(count.getCurrency(), currency -> new ArrayList<>()).add(count);
+            totalOrders += count.getOrderCount();
+        }
+        List<OrderSummaryResponse.CurrencyTotal> currencies = rowsByCurrency.entrySet().stream()
+                .map(entry -> buildCurrencyTotal(entry.getKey(), entry.getValue()))
+                .toList();
+        return new OrderSummaryResponse(totalOrders, ordersByState, currencies);
+    }
+    private OrderSummaryResponse.CurrencyTotal buildCurrencyTotal(String currency, List<CustomerOrderCount> rows) {
+        Map<OrderState, BigDecimal> amountByState = new EnumMap<>(OrderState.class);
+        long orderCount = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CustomerOrderCount row : rows) {
+            amountByState.put(row.getOrderState(), row.getTotalAmount());
+            orderCount += row.getOrderCount();
+            totalAmount = totalAmount.add(row.getTotalAmount());
+        }
+        return new OrderSummaryResponse.CurrencyTotal(currency, orderCount, totalAmount, amountByState);
+    }
+    private void increment(Order order, OrderState orderState, int direction) {
+        BigDecimal amount = direction < 0 ? order.getTotalAmount().negate() : order.getTotalAmount();
+        customerOrderCountRepository.increment(
+                order.getCustomerId(), orderState.name(), order.getCurrency(), direction, amount);
+    }
+}
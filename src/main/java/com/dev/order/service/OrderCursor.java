@@ -0,0 +1,48 @@
+package com.dev.order.service;
+
+import com.dev.order.dto.OrderResponse;
+import com.dev.order.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Continuation token for keyset pagination over (created_at, order_id).
+ * The encoded form is opaque to clients; they must only echo it back as received.
+ */
+record OrderCursor(LocalDateTime createdAt, Long orderId) {
+    private static final char SEPARATOR = '|';
+
+    static OrderCursor after(OrderResponse order) {
+        return new OrderCursor(order.createdAt(), order.orderId());
+    }
+
+    String encode() {
+        String raw = createdAt.toString() + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a client supplied token. Any tampered or malformed token is
+     * rejected as a client error rather than silently restarting from page 0.
+     */
+    static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex <= 0 || separatorIndex == raw.length() - 1) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+            LocalDateTime createdAt = LocalDateTime.parse(raw.substring(0, separatorIndex));
+            long orderId = Long.parseLong(raw.substring(separatorIndex + 1));
+            if (orderId <= 0) {
+                throw new InvalidRequestException("Invalid cursor");
+            }
+            return new OrderCursor(createdAt, orderId);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
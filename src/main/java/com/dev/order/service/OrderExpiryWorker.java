@@ -0,0 +1,185 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OrderState;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OrderTransitionCandidate;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels CREATED orders that stayed unpaid for longer than the TTL.
+ * Each batch claims the oldest expired orders with SELECT ... FOR UPDATE SKIP LOCKED and moves them to CANCELLED
+ * through OrderTransitionService.transitionAll (the same CREATED -> CANCELLED rule as Order.cancel, with counters
+ * and outbox), so any number of instances can expire in parallel without waiting on each other.
+ * Paced: one connection at a time, a pause between batches, a cap on batches per run, and the run yields
+ * as soon as request threads are waiting on the primary pool or it is busier than max-pool-usage.
+ */
+@Component
+@Slf4j
+public class OrderExpiryWorker {
+    private static final int BACKLOG_CAP = 100_000;
+
+    private final OrderRepository orderRepository;
+    private final OrderTransitionService orderTransitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final HikariDataSource hikariDataSource;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatchesPerRun;
+    private final double maxPoolUsage;
+    private final Counter cancelled;
+    private final Counter deferred;
+    private final Counter failures;
+    private final Timer batchDuration;
+    private final AtomicLong backlog = new AtomicLong();
+    private volatile boolean running;
+    private PeriodicTask task;
+
+    public OrderExpiryWorker(OrderRepository orderRepository,
+                             OrderTransitionService orderTransitionService,
+                             PlatformTransactionManager transactionManager,
+                             DataSource dataSource,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.orders.expiry.enabled:true}") boolean enabled,
+                             @Value("${app.orders.expiry.ttl:24h}") Duration ttl,
+                             @Value("${app.orders.expiry.interval:30s}") Duration interval,
+                             @Value("${app.orders.expiry.batch-size:100}") int batchSize,
+                             @Value("${app.orders.expiry.batch-pause:100ms}") Duration batchPause,
+                             @Value("${app.orders.expiry.max-batches-per-run:50}") int maxBatchesPerRun,
+                             @Value("${app.orders.expiry.max-pool-usage:0.5}") double maxPoolUsage) {
+        this.orderRepository = orderRepository;
+        this.orderTransitionService = orderTransitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.hikariDataSource = unwrapHikari(dataSource);
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxPoolUsage = maxPoolUsage;
+        this.cancelled = Counter.builder("orders.expiry.cancelled")
+                .description("Unpaid orders cancelled by expiry (rate = cancellations/sec)")
+                .register(meterRegistry);
+        this.deferred = Counter.builder("orders.expiry.deferred")
+                .description("Expiry runs cut short because the connection pool was busy")
+                .register(meterRegistry);
+        this.failures = Counter.builder("orders.expiry.failures")
+                .description("Expiry batches rolled back; their orders are claimed again next run")
+                .register(meterRegistry);
+        this.batchDuration = Timer.builder("orders.expiry.batch.duration")
+                .description("Claim + transition time per expiry batch")
+                .register(meterRegistry);
+        Gauge.builder("orders.expiry.backlog", backlog, AtomicLong::get)
+                .description("Expired CREATED orders still waiting, as of the last run (capped at " + BACKLOG_CAP + ")")
+                .register(meterRegistry);
+        log.info("Order expiry configured. enabled={}, ttl={}, interval={}, batchSize={}, maxBatchesPerRun={}",
+                enabled, ttl, interval, batchSize, maxBatchesPerRun);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        task = PeriodicTask.start("order-expiry", interval, interval, this::expire);
+        log.info("Order expiry started.");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (task != null) {
+            task.stop();
+        }
+    }
+
+    long expire() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+        long cancelledTotal = 0;
+        try {
+            //Read-only: served by a replica when routing is enabled
+            Long expired = readOnlyTransactionTemplate.execute(status -> orderRepository.countExpired(expiredBefore, BACKLOG_CAP));
+            backlog.set(expired == null ? 0 : expired);
+            int batches = 0;
+            int claimed = batchSize;
+            while (claimed == batchSize && batches < maxBatchesPerRun && running) {
+                if (poolBusy()) {
+                    deferred.increment();
+                    log.debug("Order expiry yielding to request traffic. cancelledSoFar={}", cancelledTotal);
+                    break;
+                }
+                if (batches > 0) {
+                    Thread.sleep(batchPause.toMillis());
+                }
+                long started = System.nanoTime();
+                int[] result = transactionTemplate.execute(status -> {
+                    List<OrderTransitionCandidate> claimedOrders = orderRepository.claimExpired(expiredBefore, batchSize);
+                    List<OrderTransitionCandidate> moved =
+                            orderTransitionService.transitionAll(claimedOrders, OrderState.CREATED, OrderState.CANCELLED);
+                    return new int[] {claimedOrders.size(), moved.size()};
+                });
+                batchDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                claimed = result[0];
+                cancelled.increment(result[1]);
+                cancelledTotal += result[1];
+                batches++;
+            }
+            backlog.set(Math.max(0, backlog.get() - cancelledTotal));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.error("Order expiry batch failed. cancelledSoFar={}", cancelledTotal, ex);
+        }
+        if (cancelledTotal > 0) {
+            log.info("Expired unpaid orders cancelled. count={}, createdBefore={}", cancelledTotal, expiredBefore);
+        }
+        return cancelledTotal;
+    }
+
+    private boolean poolBusy() {
+        HikariPoolMXBean pool = hikariDataSource == null ? null : hikariDataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return false;
+        }
+        return pool.getThreadsAwaitingConnection() > 0
+                || pool.getActiveConnections() >= hikariDataSource.getMaximumPoolSize() * maxPoolUsage;
+    }
+
+    //Primary pool behind any routing / lazy proxies; null when the DataSource is not Hikari (no pool pacing then)
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OrderState;
+import com.dev.order.exception.InvalidRequestException;
+import com.dev.order.exception.UnauthorizedException;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a customer's order history straight from a forward-only JDBC cursor to the response body.
+ * Each row is formatted and written as soon as it is read and nothing is collected, so heap use
+ * stays flat however many orders match. The default fetch size, Integer.MIN_VALUE, puts this one statement in
+ * MySQL's row streaming mode; every other query keeps the driver's default buffered reads.
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        public String contentType() {
+            return contentType;
+        }
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**
+     * A validated export: customer, optional state filter and a [createdFrom, createdBefore) window.
+     */
+    public record ExportRequest(
+            Long customerId,
+            Format format,
+            OrderState orderState,
+            LocalDateTime createdFrom,
+            LocalDateTime createdBefore
+    ) {}
+
+    private static final String CSV_HEADER = "orderId,customerId,totalAmount,currency,orderState,createdAt,updatedAt";
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public OrderExportService(DataSource dataSource, MeterRegistry meterRegistry,
+                              @Value("${app.orders.export.fetch-size:-2147483648}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Validates the filters before anything is written, so a bad request still gets a normal error body.
+     * from and to are calendar days, both inclusive.
+     */
+    public ExportRequest prepare(String format, String orderState, LocalDate from, LocalDate to) {
+        Format exportFormat = Arrays.stream(Format.values())
+                .filter(value -> value.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new InvalidRequestException(
+                        String.format("Invalid export format: '%s'. Allowed values: %s",
+                                format, Arrays.toString(Format.values()))));
+        OrderState exportOrderState = orderState == null ? null : OrderState.fromString(orderState).orElseThrow(
+                () -> new InvalidRequestException(
+                        String.format("Invalid order state: '%s'. Allowed values: %s",
+                                orderState, Arrays.toString(OrderState.values()))));
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException("Export date range is empty: 'from' is after 'to'");
+        }
+        return new ExportRequest(
+                getCurrentCustomerId(),
+                exportFormat,
+                exportOrderState,
+                from == null ? null : from.atStartOfDay(),
+                to == null ? null : to.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Writes every matching order, newest first (the keyset listing order), and returns the number of rows written.
+     * The output stream is flushed (and the gzip trailer written) but not closed.
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportRequest request, OutputStream outputStream, boolean gzip) throws IOException {
+        String format = request.format().name().toLowerCase(Locale.ROOT);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, WRITE_BUFFER_BYTES) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? gzipStream : outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_BYTES);
+        long[] rows = {0};
+        try {
+            if (request.format() == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            jdbcTemplate.query(connection -> prepareStatement(connection, request), (RowCallbackHandler) resultSet -> {
+                try {
+                    if (request.format() == Format.CSV) {
+                        writeCsv(writer, resultSet, request.customerId());
+                    } else {
+                        writeNdjson(writer, resultSet, request.customerId());
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                rows[0]++;
+            });
+            writer.flush();
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+        } catch (UncheckedIOException ex) {
+            //Typically the client went away mid-download; the cursor is closed by JdbcTemplate
+            log.warn("Order export aborted. format={}, rowsWritten={}", format, rows[0]);
+            throw ex.getCause();
+        } finally {
+            sample.stop(meterRegistry.timer("orders.export.duration", "format", format));
+            Counter.builder("orders.export.rows")
+                    .description("Orders written by streaming exports")
+                    .tag("format", format)
+                    .register(meterRegistry)
+                    .increment(rows[0]);
+        }
+        log.info("Order export completed. format={}, rows={}, gzip={}", format, rows[0], gzip);
+        return rows[0];
+    }
+
+    //Walks idx_orders_customer_created_desc / idx_orders_customer_state_created; no OFFSET, no sort buffer
+    private PreparedStatement prepareStatement(Connection connection, ExportRequest request) throws SQLException {
+        StringBuilder sql = new StringBuilder("""
+                SELECT order_id, total_amount, currency, order_state, created_at, updated_at
+                FROM orders
+                WHERE customer_id = ?""");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(request.customerId());
+        if (request.orderState() != null) {
+            sql.append(" AND order_state = ?");
+            parameters.add(request.orderState().name());
+        }
+        if (request.createdFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            parameters.add(Timestamp.valueOf(request.createdFrom()));
+        }
+        if (request.createdBefore() != null) {
+            sql.append(" AND created_at < ?");
+            parameters.add(Timestamp.valueOf(request.createdBefore()));
+        }
+        sql.append(" ORDER BY created_at DESC, order_id DESC");
+        PreparedStatement statement = connection.prepareStatement(
+                sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+    //Fields are ids, enums, amounts, ISO-4217 codes and ISO timestamps: nothing that needs escaping
+    private static void writeNdjson(Writer writer, ResultSet resultSet, Long customerId) throws SQLException, IOException {
+        writer.write("{\"orderId\":");
+        writer.write(Long.toString(resultSet.getLong("order_id")));
+        writer.write(",\"customerId\":");
+        writer.write(customerId.toString());
+        writer.write(",\"totalAmount\":");
+        writer.write(resultSet.getBigDecimal("total_amount").toPlainString());
+        writer.write(",\"currency\":\"");
+        writer.write(resultSet.getString("currency"));
+        writer.write("\",\"orderState\":\"");
+        writer.write(resultSet.getString("order_state"));
+        writer.write("\",\"createdAt\":\"");
+        writer.write(resultSet.getTimestamp("created_at").toLocalDateTime().toString());
+        writer.write("\",\"updatedAt\":\"");
+        writer.write(resultSet.getTimestamp("updated_at").toLocalDateTime().toString());
+        writer.write("\"}\n");
+    }
+    private static void writeCsv(Writer writer, ResultSet resultSet, Long customerId) throws SQLException, IOException {
+        writer.write(Long.toString(resultSet.getLong("order_id")));
+        writer.write(',');
+        writer.write(customerId.toString());
+        writer.write(',');
+        writer.write(resultSet.getBigDecimal("total_amount").toPlainString());
+        writer.write(',');
+        writer.write(resultSet.getString("currency"));
+        writer.write(',');
+        writer.write(resultSet.getString("order_state"));
+        writer.write(',');
+        writer.write(resultSet.getTimestamp("created_at").toLocalDateTime().toString());
+        writer.write(',');
+        writer.write(resultSet.getTimestamp("updated_at").toLocalDateTime().toString());
+        writer.write('\n');
+    }
+    private Long getCurrentCustomerId() {
+        AuthenticatedUser user = RequestContext.get();
+        if (user == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+        return user.userId();
+    }
+}
@@ -0,0 +1,150 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OrderState;
+import com.dev.order.dto.BulkTransitionResponse;
+import com.dev.order.exception.InvalidRequestException;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OrderTransitionCandidate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bulk fulfilment for internal (SYSTEM) callers: ship or cancel large batches of orders by id.
+ * Ids are sorted and cut into chunks of adjacent ids; each chunk is one short transaction that locks its
+ * rows in primary-key order and hands them to OrderTransitionService.transitionAll (one conditional UPDATE,
+ * counters and outbox, exactly like the single-order path). A chunk that fails does not undo the others.
+ */
+@Service
+@Slf4j
+public class OrderFulfilmentService {
+    public enum BulkTransition {
+        SHIP(OrderState.PAID, OrderState.SHIPPED),
+        CANCEL(OrderState.CREATED, OrderState.CANCELLED);
+
+        private final OrderState fromState;
+        private final OrderState toState;
+
+        BulkTransition(OrderState fromState, OrderState toState) {
+            this.fromState = fromState;
+            this.toState = toState;
+        }
+    }
+
+    private final OrderRepository orderRepository;
+    private final OrderTransitionService orderTransitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final int maxBatchSize;
+
+    public OrderFulfilmentService(OrderRepository orderRepository, OrderTransitionService orderTransitionService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.orders.fulfilment.chunk-size:500}") int chunkSize,
+                                  @Value("${app.orders.fulfilment.max-batch-size:50000}") int maxBatchSize) {
+        this.orderRepository = orderRepository;
+        this.orderTransitionService = orderTransitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public BulkTransitionResponse apply(BulkTransition transition, List<Long> orderIds) {
+        TreeSet<Long> requestedIds = new TreeSet<>(orderIds);
+        // Defensive: reject instead of truncating, a partial batch would look like a complete one
+        if (requestedIds.size() > maxBatchSize) {
+            throw new InvalidRequestException(
+                    String.format("Bulk transition of %d orders exceeds the maximum of %d", requestedIds.size(), maxBatchSize));
+        }
+        log.info("Bulk transition initiated. transition={}, count={}", transition, requestedIds.size());
+        List<Long> transitioned = new ArrayList<>();
+        List<BulkTransitionResponse.WrongState> wrongState = new ArrayList<>();
+        List<Long> paymentPending = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(chunkSize);
+        for (Long orderId : requestedIds) {
+            chunk.add(orderId);
+            if (chunk.size() == chunkSize) {
+                applyChunk(transition, chunk, transitioned, wrongState, paymentPending, notFound, failed);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(transition, chunk, transitioned, wrongState, paymentPending, notFound, failed);
+        }
+        record(transition, "transitioned", transitioned.size());
+        record(transition, "wrong_state", wrongState.size());
+        record(transition, "payment_pending", paymentPending.size());
+        record(transition, "not_found", notFound.size());
+        record(transition, "failed", failed.size());
+        log.info("Bulk transition completed. transition={}, transitioned={}, wrongState={}, paymentPending={}, notFound={}, failed={}",
+                transition, transitioned.size(), wrongState.size(), paymentPending.size(), notFound.size(), failed.size());
+        return new BulkTransitionResponse(transition.toState, requestedIds.size(),
+                transitioned, wrongState, paymentPending, notFound, failed);
+    }
+
+    private void applyChunk(BulkTransition transition, List<Long> chunk, List<Long> transitioned,
+                            List<BulkTransitionResponse.WrongState> wrongState, List<Long> paymentPending,
+                            List<Long> notFound, List<Long> failed) {
+        List<BulkTransitionResponse.WrongState> chunkWrongState = new ArrayList<>();
+        List<Long> chunkPaymentPending = new ArrayList<>();
+        try {
+            List<Long> chunkTransitioned = transactionTemplate.execute(status -> {
+                List<OrderTransitionCandidate> candidates = orderRepository.lockForTransition(chunk);
+                List<OrderTransitionCandidate> moved =
+                        orderTransitionService.transitionAll(candidates, transition.fromState, transition.toState);
+                List<Long> movedIds = moved.stream().map(OrderTransitionCandidate::getOrderId).toList();
+                Set<Long> movedIdSet = new HashSet<>(movedIds);
+                for (OrderTransitionCandidate candidate : candidates) {
+                    if (movedIdSet.contains(candidate.getOrderId())) {
+                        continue;
+                    }
+                    OrderState orderState = OrderState.valueOf(candidate.getOrderState());
+                    //In the source state but claimed by a PENDING payment: only a cancel leaves these
+                    if (orderState == transition.fromState && Boolean.TRUE.equals(candidate.getPaymentPending())) {
+                        chunkPaymentPending.add(candidate.getOrderId());
+                    } else {
+                        chunkWrongState.add(new BulkTransitionResponse.WrongState(candidate.getOrderId(), orderState));
+                    }
+                }
+                return movedIds;
+            });
+            Set<Long> found = new HashSet<>(chunkTransitioned);
+            chunkWrongState.forEach(order -> found.add(order.orderId()));
+            found.addAll(chunkPaymentPending);
+            transitioned.addAll(chunkTransitioned);
+            wrongState.addAll(chunkWrongState);
+            paymentPending.addAll(chunkPaymentPending);
+            chunk.stream().filter(orderId -> !found.contains(orderId)).forEach(notFound::add);
+        } catch (DataAccessException | TransactionException | IllegalStateException ex) {
+            log.warn("Bulk transition chunk failed. transition={}, firstOrderId={}, count={}, reason={}",
+                    transition, chunk.get(0), chunk.size(), ex.getMessage());
+            failed.addAll(chunk);
+        }
+    }
+
+    private void record(BulkTransition transition, String outcome, int count) {
+        Counter.builder("orders.fulfilment.transitions")
+                .description("Orders processed by SYSTEM bulk transitions, by outcome")
+                .tag("transition", transition.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(count);
+    }
+}
@@ -7,66 +7,189 @@ package com.dev.order.service;
 
 import com.dev.order.domain.Order;
 import com.dev.order.domain.OrderState;
+import com.dev.order.dto.BatchOrderResponse;
+import com.dev.order.dto.BulkOrderResponse;
 import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.CursorOrderResponse;
+import com.dev.order.dto.OrderDetailsResponse;
 import com.dev.order.dto.OrderResponse;
+import com.dev.order.dto.OrderSummaryResponse;
 import com.dev.order.dto.PageOrderResponse;
+import com.dev.order.dto.PaymentResponse;
+import com.dev.order.dto.SliceOrderResponse;
 import com.dev.order.exception.InvalidRequestException;
 import com.dev.order.exception.OrderNotFoundException;
 import com.dev.order.exception.UnauthorizedException;
 import com.dev.order.repository.OrderRepository;
 import com.dev.order.security.AuthenticatedUser;
 import com.dev.order.security.RequestContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final OrderCounterService orderCounterService;
+    private final OrderTransitionService orderTransitionService;
+    private final OutboxWriter outboxWriter;
+    private final TransactionRetry transactionRetry;
+    private final int maxBatchSize;
     private static final int MAX_PAGE_SIZE = 100;
-    public OrderService(OrderRepository orderRepository) {
+    private static final int MAX_BULK_IDS = 100;
+    public OrderService(OrderRepository orderRepository, OrderCounterService orderCounterService,
+                        OrderTransitionService orderTransitionService, OutboxWriter outboxWriter,
+                        TransactionRetry transactionRetry,
+                        @Value("${app.orders.max-batch-size:500}") int maxBatchSize) {
         this.orderRepository = orderRepository;
+        this.orderCounterService = orderCounterService;
+        this.orderTransitionService = orderTransitionService;
+        this.outboxWriter = outboxWriter;
+        this.transactionRetry = transactionRetry;
+        this.maxBatchSize = maxBatchSize;
     }
-    //Create order
-    @Transactional
+    //Create order; a deadlock or lock wait victim (e.g. on the counter row) is re-run by TransactionRetry
     public OrderResponse createOrder(CreateOrderRequest orderRequest) {
         Long customerId = getCurrentCustomerId();
         log.info("Order creation initiated.");
-        //persist new order
-        Order newOrder = new Order(customerId, orderRequest.totalAmount(), orderRequest.currency());
-        Order savedOrder = orderRepository.save(newOrder);
+        Order savedOrder = transactionRetry.execute("createOrder", status -> {
+            //persist new order
+            Order newOrder = new Order(customerId, orderRequest.totalAmount(), orderRequest.currency());
+            Order persistedOrder = orderRepository.save(newOrder);
+            orderCounterService.recordCreated(persistedOrder);
+            outboxWriter.orderCreated(persistedOrder);
+            return persistedOrder;
+        });
         log.info("Order created successfully. orderId={}", savedOrder.getId());
         return buildOrderResponse(savedOrder);
     }
+    /**
+     * Creates a batch of orders in one transaction.
+     * Pooled ids let Hibernate send the inserts as JDBC batches; the whole batch commits or none of it does.
+     */
+    @Transactional
+    public BatchOrderResponse createOrders(List<CreateOrderRequest> orderRequests) {
+        Long customerId = getCurrentCustomerId();
+        // Defensive: a write batch is rejected, never silently truncated
+        if (orderRequests.size() > maxBatchSize) {
+            throw new InvalidRequestException(
+                    String.format("Batch size %d exceeds the maximum of %d orders", orderRequests.size(), maxBatchSize));
+        }
+        log.info("Batch order creation initiated. count={}", orderRequests.size());
+        List<Order> newOrders = orderRequests.stream()
+                .map(orderRequest -> new Order(customerId, orderRequest.totalAmount(), orderRequest.currency()))
+                .toList();
+        List<Order> savedOrders = orderRepository.saveAll(newOrders);
+        orderCounterService.recordCreated(savedOrders);
+        outboxWriter.ordersCreated(savedOrders);
+        log.info("Batch orders created successfully. count={}", savedOrders.size());
+        return new BatchOrderResponse(
+                savedOrders.size(),
+                savedOrders.stream().map(this::buildOrderResponse).toList()
+        );
+    }
     //Fetch order details
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long orderId) {
-        //Check order existence
-        Order existingOrder = orderRepository.findByIdAndCustomerId(orderId, getCurrentCustomerId())
+        //Check order existence (projection: no entity hydration on the read path)
+        OrderResponse orderResponse = orderRepository.findResponseByIdAndCustomerId(orderId, getCurrentCustomerId())
                 .orElseThrow(() -> new OrderNotFoundException(orderId));
-        log.debug("Order fetched. orderId={}", existingOrder.getId());
-        return buildOrderResponse(existingOrder);
+        log.debug("Order fetched. orderId={}", orderResponse.orderId());
+        return orderResponse;
     }
-    //Cancel order
-    @Transactional
-    public OrderResponse cancelOrder(Long orderId) {
-        //Check order existence
-        Order existingOrder = orderRepository.findByIdAndCustomerId(orderId, getCurrentCustomerId())
+    /**
+     * Dashboard summary: served from the maintained counters, so its cost does not grow
+     * with the customer's order history.
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryResponse getOrderSummary() {
+        Long customerId = getCurrentCustomerId();
+        OrderSummaryResponse orderSummaryResponse = orderCounterService.getSummary(customerId);
+        log.debug("Order summary fetched. totalOrders={}", orderSummaryResponse.totalOrders());
+        return orderSummaryResponse;
+    }
+    /**
+     * Multi-get for downstream workers: one IN (...) query, still scoped to the current customer.
+     * Ids that are missing or owned by someone else are both reported as notFound.
+     */
+    @Transactional(readOnly = true)
+    public BulkOrderResponse getOrdersByIds(List<Long> orderIds) {
+        Set<Long> requestedIds = new LinkedHashSet<>(orderIds);
+        // Defensive: reject instead of capping, a truncated lookup would report real orders as not found
+        if (requestedIds.size() > MAX_BULK_IDS) {
+            throw new InvalidRequestException(
+                    String.format("At most %d ids can be requested at once", MAX_BULK_IDS));
+        }
+        Map<Long, OrderResponse> found = orderRepository.findResponsesByIdInAndCustomerId(requestedIds, getCurrentCustomerId())
+                .stream()
+                .collect(Collectors.toMap(OrderResponse::orderId, Function.identity()));
+        List<OrderResponse> orders = new ArrayList<>(found.size());
+        List<Long> notFound = new ArrayList<>();
+        for (Long orderId : requestedIds) {
+            OrderResponse orderResponse = found.get(orderId);
+            if (orderResponse != null) {
+                orders.add(orderResponse);
+            } else {
+                notFound.add(orderId);
+            }
+        }
+        log.debug("Orders multi-get. requested={}, found={}", requestedIds.size(), orders.size());
+        return new BulkOrderResponse(orders, notFound);
+    }
+    //Fetch order details with its payments (single fetch-join query)
+    @Transactional(readOnly = true)
+    public OrderDetailsResponse getOrderWithPayments(Long orderId) {
+        Order existingOrder = orderRepository.findWithPaymentsByIdAndCustomerId(orderId, getCurrentCustomerId())
                 .orElseThrow(() -> new OrderNotFoundException(orderId));
-        log.info("Order cancellation initiated. orderId={}", existingOrder.getId());
-        existingOrder.cancel();
-        log.info("Order cancelled. orderId={}", existingOrder.getId());
-        return buildOrderResponse(existingOrder);
+        log.debug("Order fetched with payments. orderId={}, payments={}", existingOrder.getId(), existingOrder.getPayments().size());
+        return new OrderDetailsResponse(
+                existingOrder.getId(),
+                existingOrder.getCustomerId(),
+                existingOrder.getTotalAmount(),
+                existingOrder.getCurrency(),
+                existingOrder.getOrderState(),
+                existingOrder.getCreatedAt(),
+                existingOrder.getUpdatedAt(),
+                existingOrder.getPayments().stream()
+                        .map(payment -> new PaymentResponse(
+                                payment.getPaymentId(),
+                                existingOrder.getId(),
+                                payment.getAmount(),
+                                payment.getPaymentState(),
+                                payment.getCreatedAt()))
+                        .toList()
+        );
+    }
+    //Cancel order; every attempt re-reads the order, so a retry after a deadlock sees the current state
+    public OrderResponse cancelOrder(Long orderId) {
+        Long customerId = getCurrentCustomerId();
+        Order cancelledOrder = transactionRetry.execute("cancelOrder", status -> {
+            //Check order existence
+            Order existingOrder = orderRepository.findByIdAndCustomerId(orderId, customerId)
+                    .orElseThrow(() -> new OrderNotFoundException(orderId));
+            log.info("Order cancellation initiated. orderId={}", existingOrder.getId());
+            orderTransitionService.cancel(existingOrder);
+            return existingOrder;
+        });
+        log.info("Order cancelled. orderId={}", cancelledOrder.getId());
+        return buildOrderResponse(cancelledOrder);
     }
     /**
      * Retrieves a paginated list of orders for the current authenticated customer.
@@ -76,49 +199,113 @@ public class OrderService {
     public PageOrderResponse getOrders(int page, int size, String orderState) {
         Long customerId = getCurrentCustomerId();
 
-        // Defensive: Protect against "Query of Death" by capping the result set size
-        if (size > MAX_PAGE_SIZE) {
-            log.warn("Page size {} exceeds max limit. Capped to {} for customerId={}",
-                    size, MAX_PAGE_SIZE, customerId);
-        }
-
-        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        int pageSize = capPageSize(size, customerId);
 
         // Optimization: Use a stable sort key that matches our composite index
         Pageable pageable = PageRequest.of(page, pageSize, Sort.by("createdAt").descending());
 
-        Page<Order> orderPage;
+        Page<OrderResponse> orderPage;
 
         // Branching Logic: Handle 'All' vs 'Filtered' views without defaulting to a single state
         if(orderState == null || orderState.isBlank()) {
-            orderPage = orderRepository.findByCustomerId(customerId, pageable);
+            orderPage = orderRepository.findResponsesByCustomerId(customerId, pageable);
         }
         else {
-            // Validation: Ensure the string maps to a valid domain Enum before hitting the DB
-            OrderState currentOrderState = OrderState.fromString(orderState).orElseThrow(
-                    () -> new InvalidRequestException(
-                            String.format("Invalid order state: '%s'. Allowed values: %s",
-                                    orderState,
-                                    Arrays.toString(OrderState.values())
-                            )));
-            orderPage = orderRepository.findByCustomerIdAndOrderState(customerId, currentOrderState, pageable);
+            OrderState currentOrderState = resolveOrderState(orderState);
+            orderPage = orderRepository.findResponsesByCustomerIdAndOrderState(customerId, currentOrderState, pageable);
         }
 
-        // Transformation: Convert Entity Page to DTO Page while preserving pagination metadata
-        Page<OrderResponse> mappedPage = orderPage.map(this::buildOrderResponse);
-
         log.debug("Orders fetched. customerId={}, page={}, requestedSize={}, appliedSize={}, filter={} ", customerId, page, size, orderPage.getSize(), orderState);
 
-        return new PageOrderResponse(
-                    mappedPage.getContent(),
-                    orderPage.getNumber(),
-                    size,
-                    orderPage.getSize(),
-                    orderPage.getTotalElements(),
-                    orderPage.getTotalPages(),
-                    orderPage.isLast()
+        return toPageOrderResponse(orderPage, size);
+    }
+    /**
+     * Retrieves a count-free page of orders for the current authenticated customer.
+     * Only reports hasNext; the total is served from the maintained counters when requested.
+     */
+    @Transactional(readOnly = true)
+    public SliceOrderResponse getOrderSlice(int page, int size, String orderState, boolean includeTotal) {
+        Long customerId = getCurrentCustomerId();
+        int pageSize = capPageSize(size, customerId);
+        Pageable pageable = PageRequest.of(page, pageSize, Sort.by("createdAt").descending());
+        OrderState currentOrderState = (orderState == null || orderState.isBlank()) ? null : resolveOrderState(orderState);
+
+        Slice<OrderResponse> orderSlice = (currentOrderState == null)
+                ? orderRepository.findResponseSliceByCustomerId(customerId, pageable)
+                : orderRepository.findResponseSliceByCustomerIdAndOrderState(customerId, currentOrderState, pageable);
+        Long totalElements = includeTotal ? orderCounterService.getTotal(customerId, currentOrderState) : null;
+
+        log.debug("Order slice fetched. customerId={}, page={}, requestedSize={}, appliedSize={}, filter={}, hasNext={}",
+                customerId, page, size, pageSize, orderState, orderSlice.hasNext());
+
+        return new SliceOrderResponse(
+                orderSlice.getContent(),
+                orderSlice.getNumber(),
+                size,
+                orderSlice.getSize(),
+                orderSlice.hasNext(),
+                totalElements
+        );
+    }
+    /**
+     * Retrieves a keyset (cursor) page of orders for the current authenticated customer.
+     * Seeks past the (createdAt, orderId) of the last row served instead of skipping
+     * offset rows, so deep pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public CursorOrderResponse getOrdersByCursor(String cursor, int size, String orderState) {
+        Long customerId = getCurrentCustomerId();
+        int pageSize = capPageSize(size, customerId);
+        OrderCursor after = (cursor == null || cursor.isBlank()) ? null : OrderCursor.decode(cursor);
+        OrderState currentOrderState = (orderState == null || orderState.isBlank()) ? null : resolveOrderState(orderState);
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        Pageable limit = PageRequest.ofSize(pageSize + 1);
+        List<OrderResponse> orders;
+        if (currentOrderState == null) {
+            orders = (after == null)
+                    ? orderRepository.findResponsesByCustomerIdNewestFirst(customerId, limit)
+                    : orderRepository.findResponsesByCustomerIdAfterCursor(customerId, after.createdAt(), after.orderId(), limit);
+        }
+        else {
+            orders = (after == null)
+                    ? orderRepository.findResponsesByCustomerIdAndOrderStateNewestFirst(customerId, currentOrderState, limit)
+                    : orderRepository.findResponsesByCustomerIdAndOrderStateAfterCursor(
+                            customerId, currentOrderState, after.createdAt(), after.orderId(), limit);
+        }
+
+        boolean last = orders.size() <= pageSize;
+        List<OrderResponse> pageContent = last ? orders : orders.subList(0, pageSize);
+        String nextCursor = last ? null : OrderCursor.after(pageContent.get(pageContent.size() - 1)).encode();
+
+        log.debug("Orders fetched by cursor. customerId={}, requestedSize={}, appliedSize={}, filter={}, last={}",
+                customerId, size, pageSize, orderState, last);
+
+        return new CursorOrderResponse(
+                pageContent,
+                size,
+                pageSize,
+                nextCursor,
+                last
         );
     }
+    private int capPageSize(int size, Long customerId) {
+        // Defensive: Protect against "Query of Death" by capping the result set size
+        if (size > MAX_PAGE_SIZE) {
+            log.warn("Page size {} exceeds max limit. Capped to {} for customerId={}",
+                    size, MAX_PAGE_SIZE, customerId);
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+    private OrderState resolveOrderState(String orderState) {
+        // Validation: Ensure the string maps to a valid domain Enum before hitting the DB
+        return OrderState.fromString(orderState).orElseThrow(
+                () -> new InvalidRequestException(
+                        String.format("Invalid order state: '%s'. Allowed values: %s",
+                                orderState,
+                                Arrays.toString(OrderState.values())
+                        )));
+    }
     private Long getCurrentCustomerId() {
         //Ownership check
         AuthenticatedUser user = RequestContext.get();
@@ -127,7 +314,19 @@ public class OrderService {
         }
         return user.userId();
     }
-    private OrderResponse buildOrderResponse(Order order) {
+    // Transformation: Convert the projected Page to the API DTO while preserving pagination metadata
+    PageOrderResponse toPageOrderResponse(Page<OrderResponse> orderPage, int requestedSize) {
+        return new PageOrderResponse(
+                    orderPage.getContent(),
+                    orderPage.getNumber(),
+                    requestedSize,
+                    orderPage.getSize(),
+                    orderPage.getTotalElements(),
+                    orderPage.getTotalPages(),
+                    orderPage.isLast()
+        );
+    }
+    OrderResponse buildOrderResponse(Order order) {
         return new OrderResponse(
                 order.getId(),
                 order.getCustomerId(),
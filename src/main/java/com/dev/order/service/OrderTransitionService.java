@@ -0,0 +1,107 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.Order;
+import com.dev.order.domain.OrderState;
+import com.dev.order.exception.ConcurrentOrderModificationException;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OrderTransitionCandidate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Single entry point for Order state transitions.
+ * The domain rule (Order.markAsPaid / cancel / markAsShipped) is applied to the managed entity and
+ * flushed immediately as UPDATE ... WHERE order_id = ? AND version = ?. A concurrent transition of the
+ * same order makes that UPDATE match no row, which is surfaced as a 409 instead of a double transition.
+ * No row is locked before the write, so unrelated orders never serialize on each other.
+ * Accepting a payment claims the order the same way (payment_pending, version + 1), so two payments can
+ * never be PENDING on one order at the same time.
+ */
+@Service
+@Slf4j
+public class OrderTransitionService {
+    private final OrderRepository orderRepository;
+    private final OrderCounterService orderCounterService;
+    private final OutboxWriter outboxWriter;
+
+    public OrderTransitionService(OrderRepository orderRepository, OrderCounterService orderCounterService,
+                                  OutboxWriter outboxWriter) {
+        this.orderRepository = orderRepository;
+        this.orderCounterService = orderCounterService;
+        this.outboxWriter = outboxWriter;
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markAsPaid(Order order) {
+        transition(order, Order::markAsPaid);
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(Order order) {
+        transition(order, Order::cancel);
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markAsShipped(Order order) {
+        transition(order, Order::markAsShipped);
+    }
+    //Not a state transition: no counters, no outbox event, only the version-checked write
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void claimForPayment(Order order) {
+        writeVersioned(order, Order::claimForPayment);
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releasePaymentClaim(Order order) {
+        writeVersioned(order, Order::releasePaymentClaim);
+    }
+    /**
+     * Set-based variant for rows the caller has already locked (bulk fulfilment, expiry): the ones still in
+     * fromState are moved with one conditional UPDATE that bumps their version, followed by the same counter and
+     * outbox bookkeeping as a single transition. Rows in any other state are left untouched, and so are orders
+     * holding a payment claim when cancelling (same rule as Order.cancel).
+     * @return the orders that were transitioned
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OrderTransitionCandidate> transitionAll(List<OrderTransitionCandidate> lockedOrders,
+                                                        OrderState fromState, OrderState toState) {
+        List<OrderTransitionCandidate> eligible = lockedOrders.stream()
+                .filter(order -> fromState.name().equals(order.getOrderState()))
+                .filter(order -> toState != OrderState.CANCELLED || !Boolean.TRUE.equals(order.getPaymentPending()))
+                .toList();
+        if (eligible.isEmpty()) {
+            return eligible;
+        }
+        List<Long> orderIds = eligible.stream().map(OrderTransitionCandidate::getOrderId).toList();
+        int updated = orderRepository.transitionAll(orderIds, fromState, toState, LocalDateTime.now());
+        //The rows are locked, so the conditional UPDATE must match every eligible one
+        if (updated != orderIds.size()) {
+            throw new IllegalStateException(String.format(
+                    "Set-based transition updated %d of %d locked orders", updated, orderIds.size()));
+        }
+        orderCounterService.recordTransitions(eligible, fromState, toState);
+        outboxWriter.ordersTransitioned(eligible, toState);
+        log.debug("Orders transitioned. count={}, {} -> {}", eligible.size(), fromState, toState);
+        return eligible;
+    }
+    private void transition(Order order, Consumer<Order> rule) {
+        OrderState previousState = order.getOrderState();
+        writeVersioned(order, rule);
+        orderCounterService.recordTransition(order, previousState);
+        outboxWriter.orderTransitioned(order, previousState);
+    }
+    private void writeVersioned(Order order, Consumer<Order> rule) {
+        OrderState previousState = order.getOrderState();
+        rule.accept(order);
+        try {
+            orderRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            log.warn("Concurrent order modification rejected. orderId={}, {} -> {}",
+                    order.getId(), previousState, order.getOrderState());
+            throw new ConcurrentOrderModificationException(order.getId());
+        }
+    }
+}
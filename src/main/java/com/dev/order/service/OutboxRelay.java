@@ -0,0 +1,145 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OutboxEvent;
+import com.dev.order.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox to the OutboxSink in batches.
+ * Each batch is claimed with SELECT ... FOR UPDATE SKIP LOCKED, published, and deleted in one transaction,
+ * so several relays (threads or nodes) can drain the table concurrently without blocking on each other
+ * and without delivering the same committed batch twice. A full batch is followed immediately by the next one;
+ * an empty or partial batch waits for the next poll.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink outboxSink;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Counter relayed;
+    private final Counter failures;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+    private final Timer batchDuration;
+    private final AtomicLong currentLagMillis = new AtomicLong();
+    private volatile boolean running;
+    private PeriodicTask task;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxSink outboxSink,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${app.outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${app.outbox.relay.poll-interval:200ms}") Duration pollInterval) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSink = outboxSink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.relayed = Counter.builder("outbox.relay.events")
+                .description("Events handed to the sink (throughput)")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.relay.failures")
+                .description("Relay batches rolled back; their events are retried")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Events per relayed batch")
+                .register(meterRegistry);
+        this.lag = Timer.builder("outbox.relay.lag")
+                .description("Time from the business commit to delivery to the sink")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchDuration = Timer.builder("outbox.relay.batch.duration")
+                .description("Claim + publish + delete time per batch")
+                .register(meterRegistry);
+        Gauge.builder("outbox.relay.lag.current", currentLagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .description("Age of the oldest event in the last relayed batch")
+                .register(meterRegistry);
+        log.info("Outbox relay configured. enabled={}, sink={}, batchSize={}, pollInterval={}",
+                enabled, outboxSink.getClass().getSimpleName(), batchSize, pollInterval);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        task = PeriodicTask.start("outbox-relay", Duration.ZERO, pollInterval, this::drain);
+        log.info("Outbox relay started.");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (task != null) {
+            task.stop();
+        }
+    }
+
+    void drain() {
+        try {
+            int relayedCount;
+            do {
+                relayedCount = relayBatch();
+            } while (relayedCount == batchSize && running);
+            if (relayedCount == 0) {
+                currentLagMillis.set(0);
+            }
+        } catch (RuntimeException ex) {
+            //The batch is still in the table for the next poll
+            failures.increment();
+            log.error("Outbox relay batch failed", ex);
+        }
+    }
+
+    int relayBatch() {
+        long started = System.nanoTime();
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            List<OutboxEvent> claimed = outboxEventRepository.claimBatch(batchSize);
+            if (!claimed.isEmpty()) {
+                outboxSink.publish(claimed);
+                outboxEventRepository.deleteAllByIdInBatch(claimed.stream().map(OutboxEvent::getEventId).toList());
+            }
+            return claimed;
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+        batchDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxEvent event : events) {
+            lag.record(Duration.between(event.getCreatedAt(), now));
+        }
+        currentLagMillis.set(Duration.between(events.get(0).getCreatedAt(), now).toMillis());
+        relayed.increment(events.size());
+        batchSizes.record(events.size());
+        log.debug("Outbox batch relayed. size={}", events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination of relayed outbox events. Called inside the relay transaction that still holds the claimed rows:
+ * returning normally acknowledges the whole batch, throwing makes the relay retry it later.
+ * A batch can therefore be delivered more than once.
+ */
+public interface OutboxSink {
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,75 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.Order;
+import com.dev.order.domain.OrderState;
+import com.dev.order.domain.OutboxEvent;
+import com.dev.order.domain.Payment;
+import com.dev.order.repository.OrderTransitionCandidate;
+import com.dev.order.repository.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Records domain events in the outbox table.
+ * Must be called inside the transaction that makes the change, so an event exists if and only if the change committed.
+ * Payloads only carry ids, enums, amounts and ISO timestamps, so they are formatted directly without a JSON mapper.
+ */
+@Service
+public class OutboxWriter {
+    static final String ORDER = "ORDER";
+    static final String PAYMENT = "PAYMENT";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    public OutboxWriter(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(Order order) {
+        outboxEventRepository.save(orderEvent(order));
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordersCreated(List<Order> orders) {
+        outboxEventRepository.saveAll(orders.stream().map(this::orderEvent).toList());
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderTransitioned(Order order, OrderState previousState) {
+        if (previousState != order.getOrderState()) {
+            outboxEventRepository.save(orderEvent(order));
+        }
+    }
+    //Set-based transitions: the row was updated with version + 1
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordersTransitioned(List<OrderTransitionCandidate> orders, OrderState newState) {
+        outboxEventRepository.saveAll(orders.stream()
+                .map(order -> orderEvent(order.getOrderId(), order.getCustomerId(), newState, order.getTotalAmount(),
+                        order.getCurrency(), order.getVersion() + 1))
+                .toList());
+    }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentSettled(Payment payment) {
+        Order order = payment.getOrder();
+        String payload = String.format(
+                "{\"paymentId\":%d,\"orderId\":%d,\"customerId\":%d,\"amount\":%s,\"currency\":\"%s\",\"paymentState\":\"%s\"}",
+                payment.getPaymentId(), order.getId(), order.getCustomerId(), payment.getAmount().toPlainString(),
+                payment.getCurrency(), payment.getPaymentState());
+        outboxEventRepository.save(new OutboxEvent(PAYMENT, payment.getPaymentId(), null,
+                "PAYMENT_" + payment.getPaymentState(), payload));
+    }
+    //ORDER_CREATED, ORDER_PAID, ORDER_CANCELLED, ORDER_SHIPPED
+    private OutboxEvent orderEvent(Order order) {
+        return orderEvent(order.getId(), order.getCustomerId(), order.getOrderState(), order.getTotalAmount(),
+                order.getCurrency(), order.getVersion());
+    }
+    private OutboxEvent orderEvent(Long orderId, Long customerId, OrderState orderState, BigDecimal totalAmount,
+                                   String currency, Long version) {
+        String payload = String.format(
+                "{\"orderId\":%d,\"customerId\":%d,\"orderState\":\"%s\",\"totalAmount\":%s,\"currency\":\"%s\"}",
+                orderId, customerId, orderState, totalAmount.toPlainString(), currency);
+        return new OutboxEvent(ORDER, orderId, version, "ORDER_" + orderState, payload);
+    }
+}
@@ -0,0 +1,20 @@
+package com.dev.order.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Settles an accepted (PENDING) payment with the payment provider.
+ * Calls happen outside any database transaction. The same payment can be offered more than once
+ * (recovery sweeps, multiple instances), so implementations must be idempotent on paymentId, which,
+ * unlike the client's idempotency key, is never purged.
+ */
+public interface PaymentProcessor {
+    record SettlementRequest(Long paymentId, Long orderId, BigDecimal amount, String currency) {}
+
+    enum Decision {
+        APPROVED,
+        DECLINED
+    }
+
+    Decision settle(SettlementRequest request);
+}
@@ -0,0 +1,190 @@
+package com.dev.order.service;
+
+import com.dev.order.exception.PaymentProcessorException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The only way the service talks to the PaymentProcessor. Every call goes through
+ * 1. a circuit breaker that fails fast while the processor is degraded,
+ * 2. a bulkhead bounding concurrent processor calls (request threads queue for it at most maxWait),
+ * 3. a per-call deadline: the caller gives up after timeout, while the call itself keeps its bulkhead permit
+ *    until it really returns, so a hanging processor fills the bulkhead instead of Tomcat's thread pool.
+ * Processor calls never run inside a transaction, so they never pin a Hikari connection either.
+ * Implementations must still enforce their own I/O timeouts; the deadline only frees the caller.
+ */
+@Component
+@Slf4j
+public class PaymentProcessorClient {
+    private final PaymentProcessor paymentProcessor;
+    private final Semaphore bulkhead;
+    private final Duration maxWait;
+    private final Duration timeout;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService callExecutor;
+    private final Timer callLatency;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter timedOut;
+    private final Counter rejected;
+    private final Counter shortCircuited;
+
+    public PaymentProcessorClient(PaymentProcessor paymentProcessor,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.payments.processor.max-concurrent-calls:20}") int maxConcurrentCalls,
+                                  @Value("${app.payments.processor.max-wait:50ms}") Duration maxWait,
+                                  @Value("${app.payments.processor.timeout:2s}") Duration timeout,
+                                  @Value("${app.payments.processor.circuit-breaker.window-size:50}") int windowSize,
+                                  @Value("${app.payments.processor.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                                  @Value("${app.payments.processor.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                  @Value("${app.payments.processor.circuit-breaker.slow-call-threshold:1s}") Duration slowCallThreshold,
+                                  @Value("${app.payments.processor.circuit-breaker.slow-call-rate-threshold:0.8}") double slowCallRateThreshold,
+                                  @Value("${app.payments.processor.circuit-breaker.open-duration:5s}") Duration openDuration,
+                                  @Value("${app.payments.processor.circuit-breaker.max-open-duration:60s}") Duration maxOpenDuration,
+                                  @Value("${app.payments.processor.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        this.paymentProcessor = paymentProcessor;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallThreshold,
+                slowCallRateThreshold, openDuration, maxOpenDuration, halfOpenCalls, System::nanoTime);
+        //Effectively bounded by the bulkhead: a thread only runs while it holds a permit
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("payment-processor-");
+        threadFactory.setDaemon(true);
+        this.callExecutor = Executors.newCachedThreadPool(threadFactory);
+        this.callLatency = Timer.builder("payments.processor.latency")
+                .description("Time spent waiting for a processor decision")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.succeeded = callCounter(meterRegistry, "success");
+        this.failed = callCounter(meterRegistry, "failure");
+        this.timedOut = callCounter(meterRegistry, "timeout");
+        this.rejected = callCounter(meterRegistry, "rejected");
+        this.shortCircuited = callCounter(meterRegistry, "short_circuited");
+        Gauge.builder("payments.processor.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free processor call slots")
+                .register(meterRegistry);
+        Gauge.builder("payments.processor.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        log.info("Payment processor client configured. processor={}, maxConcurrentCalls={}, maxWait={}, timeout={}",
+                paymentProcessor.getClass().getSimpleName(), maxConcurrentCalls, maxWait, timeout);
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payments.processor.calls")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cheap snapshot check so a payment is not even stored while the processor is known to be unavailable.
+     */
+    public void ensureAvailable() {
+        if (circuitBreaker.isOpen()) {
+            shortCircuited.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.CIRCUIT_OPEN,
+                    "Payment processor is unavailable, retry later");
+        }
+        if (bulkhead.availablePermits() == 0) {
+            rejected.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.BULKHEAD_FULL,
+                    "Payment processor is at capacity, retry later");
+        }
+    }
+
+    /**
+     * @throws PaymentProcessorException when no decision was obtained; the outcome is then unknown
+     *                                   only for TIMEOUT, the other reasons did not settle anything
+     */
+    public PaymentProcessor.Decision settle(PaymentProcessor.SettlementRequest request) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            shortCircuited.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.CIRCUIT_OPEN,
+                    "Payment processor is unavailable, retry later");
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.releasePermission();
+            rejected.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.BULKHEAD_FULL,
+                    "Payment processor is at capacity, retry later");
+        }
+        long started = System.nanoTime();
+        CompletableFuture<PaymentProcessor.Decision> call = new CompletableFuture<>();
+        try {
+            callExecutor.execute(() -> {
+                try {
+                    call.complete(paymentProcessor.settle(request));
+                } catch (Throwable ex) {
+                    call.completeExceptionally(ex);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            rejected.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.BULKHEAD_FULL,
+                    "Payment processor client is shutting down", ex);
+        }
+        try {
+            PaymentProcessor.Decision decision = call.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            long elapsed = System.nanoTime() - started;
+            circuitBreaker.onSuccess(elapsed);
+            callLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            succeeded.increment();
+            return decision;
+        } catch (TimeoutException ex) {
+            circuitBreaker.onFailure();
+            callLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            timedOut.increment();
+            log.warn("Payment processor deadline exceeded. paymentId={}, timeout={}", request.paymentId(), timeout);
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.TIMEOUT,
+                    "Payment processor did not answer in time", ex);
+        } catch (ExecutionException ex) {
+            circuitBreaker.onFailure();
+            callLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            failed.increment();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.FAILED,
+                    "Payment processor call failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            //Not the processor's fault; do not count it against the breaker
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessorException(PaymentProcessorException.Reason.FAILED,
+                    "Interrupted while waiting for the payment processor", ex);
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callExecutor.shutdownNow();
+    }
+}
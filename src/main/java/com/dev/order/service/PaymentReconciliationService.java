@@ -0,0 +1,457 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.ReconciliationResponse;
+import com.dev.order.dto.ReconciliationRunResponse;
+import com.dev.order.exception.InvalidRequestException;
+import com.dev.order.exception.ReconciliationRunNotFoundException;
+import com.dev.order.exception.ServiceOverloadedException;
+import com.dev.order.repository.PaymentRepository;
+import com.dev.order.repository.ReconciliationPayment;
+import com.dev.order.service.PaymentProcessor.Decision;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Nightly reconciliation of payments against a processor settlement file.
+ * The payment_id space is cut into fixed ranges (chunks) that a fork-join pool reconciles in parallel:
+ * each chunk reads its payments in keyset pages (read-only, so replicas serve them when routing is on) and
+ * merge-joins them with the memory-mapped, id-sorted settlement entries of the same range.
+ * A chunk's mismatches are written to its own file and published with an atomic rename, which is also its
+ * checkpoint: a rerun for the same file skips published chunks and only redoes the rest.
+ * Runs started over HTTP execute on a dedicated thread and are looked up by run id; the last few are kept.
+ */
+@Service
+@Slf4j
+public class PaymentReconciliationService {
+    public enum MismatchType {
+        //COMPLETED (or REFUND_REQUIRED) locally, absent from the settlement file
+        MISSING_IN_SETTLEMENT,
+        //Settled by the processor, no such payment locally
+        MISSING_PAYMENT,
+        //Local state disagrees with the processor decision (PENDING counts as disagreeing)
+        STATE_MISMATCH,
+        AMOUNT_MISMATCH,
+        DUPLICATE_SETTLEMENT
+    }
+
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final String REPORT_HEADER =
+            "type,paymentId,localState,localAmount,localCurrency,processorDecision,processorAmount,processorCurrency";
+    private static final String CHECKPOINT = "checkpoint.properties";
+    private static final String REPORT = "mismatches.csv";
+    private static final int RETAINED_RUNS = 50;
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Path settlementDirectory;
+    private final Path workDirectory;
+    private final long chunkSize;
+    private final int pageSize;
+    private final int parallelism;
+    private final Duration cutoffLag;
+    private final Timer runDuration;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runner;
+    //Insertion-ordered so the oldest run is evicted first; guarded by itself
+    private final Map<String, ReconciliationRunResponse> runs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReconciliationRunResponse> eldest) {
+            return size() > RETAINED_RUNS;
+        }
+    };
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.payments.reconciliation.settlement-dir:settlements}") String settlementDirectory,
+                                        @Value("${app.payments.reconciliation.work-dir:reconciliation}") String workDirectory,
+                                        @Value("${app.payments.reconciliation.chunk-size:50000}") long chunkSize,
+                                        @Value("${app.payments.reconciliation.page-size:1000}") int pageSize,
+                                        @Value("${app.payments.reconciliation.parallelism:4}") int parallelism,
+                                        @Value("${app.payments.reconciliation.cutoff-lag:1h}") Duration cutoffLag) {
+        this.paymentRepository = paymentRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.settlementDirectory = Paths.get(settlementDirectory);
+        this.workDirectory = Paths.get(workDirectory);
+        this.chunkSize = chunkSize;
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+        this.cutoffLag = cutoffLag;
+        this.runDuration = Timer.builder("payments.reconciliation.duration")
+                .description("Time per reconciliation run, resumed chunks excluded")
+                .register(meterRegistry);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("payment-reconciliation-");
+        threadFactory.setDaemon(true);
+        this.runner = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    /**
+     * Starts reconciling the named file on the reconciliation thread and returns at once.
+     * The file name is validated and the single-run slot claimed before returning, so those errors still
+     * reach the caller; how the run ends is read back with {@link #status(String)}.
+     */
+    public ReconciliationRunResponse start(String fileName) {
+        Path settlementPath = acquire(fileName);
+        ReconciliationRunResponse started = ReconciliationRunResponse.running(UUID.randomUUID().toString(), fileName);
+        record(started);
+        try {
+            runner.execute(() -> {
+                try {
+                    record(started.finished(run(fileName, settlementPath)));
+                } catch (IOException | RuntimeException ex) {
+                    log.error("Reconciliation run failed. runId={}, file={}", started.runId(), fileName, ex);
+                    record(started.failed(ex.getMessage()));
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            running.set(false);
+            record(started.failed("Service is shutting down"));
+            throw new ServiceOverloadedException("Reconciliation is not accepting runs", 60);
+        }
+        return started;
+    }
+
+    public ReconciliationRunResponse status(String runId) {
+        synchronized (runs) {
+            ReconciliationRunResponse run = runs.get(runId);
+            if (run == null) {
+                throw new ReconciliationRunNotFoundException(runId);
+            }
+            return run;
+        }
+    }
+
+    /**
+     * Reconciles the named file from the settlement directory, resuming a previous interrupted run of it.
+     * Payments created within cutoff-lag of the file's modification time may legitimately be absent from it.
+     */
+    public ReconciliationResponse reconcile(String fileName) {
+        Path settlementPath = acquire(fileName);
+        try {
+            return run(fileName, settlementPath);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    //A chunk is checkpointed by its own rename, so interrupting a run loses at most the chunks in flight
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    //Validates the file and claims the single-run slot; the caller releases it
+    private Path acquire(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            throw new InvalidRequestException("Invalid settlement file name");
+        }
+        Path settlementPath = settlementDirectory.resolve(fileName);
+        if (!Files.isRegularFile(settlementPath)) {
+            throw new InvalidRequestException("Settlement file not found: " + fileName);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ServiceOverloadedException("A reconciliation run is already in progress", 60);
+        }
+        return settlementPath;
+    }
+
+    private void record(ReconciliationRunResponse run) {
+        synchronized (runs) {
+            runs.put(run.runId(), run);
+        }
+    }
+
+    private ReconciliationResponse run(String fileName, Path settlementPath) throws IOException {
+        long startNanos = System.nanoTime();
+        Path runDirectory = workDirectory.resolve(fileName);
+        Files.createDirectories(runDirectory);
+        Properties checkpoint = checkpoint(settlementPath, runDirectory);
+        long maxPaymentId = Long.parseLong(checkpoint.getProperty("max.payment.id"));
+        LocalDateTime createdBefore = LocalDateTime.parse(checkpoint.getProperty("created.before"));
+        int chunkCount = (int) Math.max(1, (maxPaymentId + chunkSize - 1) / chunkSize);
+
+        SettlementFile settlementFile = SettlementFile.open(settlementPath);
+        List<Integer> pending = new ArrayList<>();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (!Files.exists(chunkFile(runDirectory, chunk))) {
+                pending.add(chunk);
+            }
+        }
+        int resumedChunks = chunkCount - pending.size();
+        log.info("Reconciliation started. file={}, settlementRows={}, chunks={}, resumedChunks={}, maxPaymentId={}",
+                fileName, settlementFile.size(), chunkCount, resumedChunks, maxPaymentId);
+
+        //Each worker holds at most one connection at a time; keep parallelism well under the pool size
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        int failedChunks = 0;
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int chunk : pending) {
+                boolean last = chunk == chunkCount - 1;
+                tasks.add(() -> {
+                    reconcileChunk(settlementFile, runDirectory, chunk, last, createdBefore);
+                    return null;
+                });
+            }
+            List<Future<Void>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                    chunkCounter("completed").increment();
+                } catch (ExecutionException ex) {
+                    failedChunks++;
+                    chunkCounter("failed").increment();
+                    log.error("Reconciliation chunk failed; it is redone on the next run. file={}, chunk={}",
+                            fileName, pending.get(i), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+        chunkCounter("resumed").increment(resumedChunks);
+
+        Map<MismatchType, Long> mismatches = new EnumMap<>(MismatchType.class);
+        long[] totals = new long[2];
+        boolean complete = failedChunks == 0;
+        Path report = runDirectory.resolve(REPORT);
+        if (complete) {
+            writeReport(runDirectory, chunkCount, report, mismatches, totals);
+        } else {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                Path chunkFile = chunkFile(runDirectory, chunk);
+                if (Files.exists(chunkFile)) {
+                    readChunk(chunkFile, null, mismatches, totals);
+                }
+            }
+        }
+        runDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        Map<String, Long> mismatchCounts = new LinkedHashMap<>();
+        mismatches.forEach((type, count) -> mismatchCounts.put(type.name(), count));
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        log.info("Reconciliation finished. file={}, complete={}, failedChunks={}, payments={}, mismatches={}, durationMs={}",
+                fileName, complete, failedChunks, totals[0], mismatchCounts, durationMillis);
+        return new ReconciliationResponse(fileName, complete, chunkCount, resumedChunks, failedChunks,
+                totals[0], totals[1], mismatchCounts, complete ? report.toString() : null, durationMillis);
+    }
+
+    /*
+     * Resume only when the settlement file and chunk layout are unchanged; otherwise start over.
+     * max.payment.id and created.before are fixed by the first attempt so every attempt cuts the same chunks.
+     */
+    private Properties checkpoint(Path settlementPath, Path runDirectory) throws IOException {
+        Properties current = new Properties();
+        current.setProperty("file.size", Long.toString(Files.size(settlementPath)));
+        current.setProperty("file.modified", Long.toString(Files.getLastModifiedTime(settlementPath).toMillis()));
+        current.setProperty("chunk.size", Long.toString(chunkSize));
+        Path checkpointPath = runDirectory.resolve(CHECKPOINT);
+        if (Files.exists(checkpointPath)) {
+            Properties previous = new Properties();
+            try (BufferedReader reader = Files.newBufferedReader(checkpointPath, StandardCharsets.UTF_8)) {
+                previous.load(reader);
+            }
+            if (current.stringPropertyNames().stream()
+                    .allMatch(key -> current.getProperty(key).equals(previous.getProperty(key)))) {
+                cleanup(runDirectory, "chunk-*.part");
+                return previous;
+            }
+            log.info("Settlement file or chunk size changed; discarding the previous checkpoint. dir={}", runDirectory);
+        }
+        cleanup(runDirectory, "chunk-*");
+        Files.deleteIfExists(runDirectory.resolve(REPORT));
+        Long maxPaymentId = readOnlyTransactionTemplate.execute(status -> paymentRepository.findMaxPaymentId().orElse(0L));
+        LocalDateTime createdBefore = LocalDateTime.ofInstant(
+                Files.getLastModifiedTime(settlementPath).toInstant(), ZoneId.systemDefault()).minus(cutoffLag);
+        current.setProperty("max.payment.id", Long.toString(maxPaymentId == null ? 0 : maxPaymentId));
+        current.setProperty("created.before", createdBefore.toString());
+        Path temporary = runDirectory.resolve(CHECKPOINT + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            current.store(writer, "Reconciliation checkpoint");
+        }
+        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return current;
+    }
+
+    /*
+     * Merge join of one payment_id range: payments in keyset pages, settlement entries from the sorted index.
+     * The last chunk is open-ended so settlement rows above the starting max id are still matched.
+     */
+    private void reconcileChunk(SettlementFile settlementFile, Path runDirectory, int chunk, boolean last,
+                                LocalDateTime createdBefore) throws IOException {
+        long firstId = chunk * chunkSize;
+        long lastId = last ? Long.MAX_VALUE : firstId + chunkSize;
+        int entry = settlementFile.lowerBound(firstId + 1);
+        int entryEnd = last ? settlementFile.size() : settlementFile.lowerBound(lastId + 1);
+        int settlements = entryEnd - entry;
+        long payments = 0;
+        Path part = runDirectory.resolve(String.format("chunk-%08d.part", chunk));
+        try (BufferedWriter writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+            long afterId = firstId;
+            List<ReconciliationPayment> page;
+            do {
+                long pageAfterId = afterId;
+                page = readOnlyTransactionTemplate.execute(status ->
+                        paymentRepository.findReconciliationPage(pageAfterId, lastId, PageRequest.of(0, pageSize)));
+                for (ReconciliationPayment payment : page) {
+                    long paymentId = payment.getPaymentId();
+                    while (entry < entryEnd && settlementFile.paymentIdAt(entry) < paymentId) {
+                        write(writer, MismatchType.MISSING_PAYMENT, null, settlementFile.entryAt(entry++));
+                    }
+                    if (entry < entryEnd && settlementFile.paymentIdAt(entry) == paymentId) {
+                        compare(writer, payment, settlementFile.entryAt(entry++));
+                        while (entry < entryEnd && settlementFile.paymentIdAt(entry) == paymentId) {
+                            write(writer, MismatchType.DUPLICATE_SETTLEMENT, payment, settlementFile.entryAt(entry++));
+                        }
+                    } else if ((payment.getPaymentState() == PaymentState.COMPLETED
+                            || payment.getPaymentState() == PaymentState.REFUND_REQUIRED)
+                            && payment.getCreatedAt().isBefore(createdBefore)) {
+                        write(writer, MismatchType.MISSING_IN_SETTLEMENT, payment, null);
+                    }
+                    afterId = paymentId;
+                }
+                payments += page.size();
+            } while (page.size() == pageSize);
+            while (entry < entryEnd) {
+                write(writer, MismatchType.MISSING_PAYMENT, null, settlementFile.entryAt(entry++));
+            }
+            //Trailer: only a fully written chunk has it, and only a fully written chunk gets published
+            writer.write(String.format("#payments=%d,settlements=%d%n", payments, settlements));
+        }
+        Files.move(part, chunkFile(runDirectory, chunk), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void compare(Writer writer, ReconciliationPayment payment, SettlementFile.Entry settlement)
+            throws IOException {
+        boolean stateMatches = switch (payment.getPaymentState()) {
+            case COMPLETED, REFUND_REQUIRED -> settlement.decision() == Decision.APPROVED;
+            case FAILED -> settlement.decision() == Decision.DECLINED;
+            default -> false;
+        };
+        if (!stateMatches) {
+            write(writer, MismatchType.STATE_MISMATCH, payment, settlement);
+        } else if (payment.getAmount().compareTo(settlement.amount()) != 0
+                || !payment.getCurrency().equals(settlement.currency())) {
+            write(writer, MismatchType.AMOUNT_MISMATCH, payment, settlement);
+        }
+    }
+
+    private static void write(Writer writer, MismatchType type, ReconciliationPayment payment,
+                              SettlementFile.Entry settlement) throws IOException {
+        long paymentId = payment != null ? payment.getPaymentId() : settlement.paymentId();
+        writer.write(type.name());
+        writer.write(',');
+        writer.write(Long.toString(paymentId));
+        writer.write(',');
+        writer.write(payment == null ? "," : payment.getPaymentState() + ",");
+        writer.write(payment == null ? "," : payment.getAmount().toPlainString() + "," + payment.getCurrency());
+        writer.write(',');
+        writer.write(settlement == null ? ",," : settlement.decision() + ","
+                + settlement.amount().toPlainString() + "," + settlement.currency());
+        writer.write('\n');
+    }
+
+    //Concatenates the chunk files in payment_id order into one report
+    private static void writeReport(Path runDirectory, int chunkCount, Path report,
+                                    Map<MismatchType, Long> mismatches, long[] totals) throws IOException {
+        Path temporary = runDirectory.resolve(REPORT + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(REPORT_HEADER);
+            writer.write('\n');
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                readChunk(chunkFile(runDirectory, chunk), writer, mismatches, totals);
+            }
+        }
+        Files.move(temporary, report, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Reconciliation report written. report={}", report);
+    }
+
+    private static void readChunk(Path chunkFile, Writer writer, Map<MismatchType, Long> mismatches, long[] totals)
+            throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(chunkFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    String[] stats = line.substring(1).split(",");
+                    totals[0] += Long.parseLong(stats[0].substring(stats[0].indexOf('=') + 1));
+                    totals[1] += Long.parseLong(stats[1].substring(stats[1].indexOf('=') + 1));
+                    continue;
+                }
+                mismatches.merge(MismatchType.valueOf(line.substring(0, line.indexOf(','))), 1L, Long::sum);
+                if (writer != null) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    private static void cleanup(Path runDirectory, String glob) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(runDirectory, glob)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Path chunkFile(Path runDirectory, int chunk) {
+        return runDirectory.resolve(String.format("chunk-%08d.csv", chunk));
+    }
+
+    private Counter chunkCounter(String outcome) {
+        return Counter.builder("payments.reconciliation.chunks")
+                .description("Reconciliation chunks by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
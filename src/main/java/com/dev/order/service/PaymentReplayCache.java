@@ -0,0 +1,61 @@
+package com.dev.order.service;
+
+import com.dev.order.dto.PaymentResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Bounded, TTL-evicting cache of idempotent payment responses.
+ * Lets client retries with the same Idempotency-Key be answered without a database round trip.
+ * Entries carry the owning order and customer so ownership is still enforced on every replay.
+ */
+@Component
+@Slf4j
+public class PaymentReplayCache {
+    public record Entry(Long orderId, Long customerId, PaymentResponse paymentResponse) {}
+
+    private final Cache<String, Entry> cache;
+
+    public PaymentReplayCache(MeterRegistry meterRegistry,
+                              @Value("${app.payments.replay-cache.max-size:100000}") long maxSize,
+                              @Value("${app.payments.replay-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        //Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size tagged cache=payments.replay
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "payments.replay");
+        log.info("Payment replay cache configured. maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    public Entry get(String idempotencyKey) {
+        return cache.getIfPresent(idempotencyKey);
+    }
+
+    /**
+     * Caches the response once the surrounding transaction commits,
+     * so a rolled-back payment can never be replayed from memory.
+     */
+    public void putOnCommit(String idempotencyKey, Entry entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(idempotencyKey, entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(idempotencyKey, entry);
+            }
+        });
+    }
+}
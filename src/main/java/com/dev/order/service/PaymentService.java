@@ -5,49 +5,155 @@
  */
 package com.dev.order.service;
 
+import com.dev.order.domain.IdempotencyKey;
 import com.dev.order.domain.Order;
 import com.dev.order.domain.OrderState;
 import com.dev.order.domain.Payment;
 import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.BulkPaymentResponse;
+import com.dev.order.dto.OrderPaymentsResponse;
 import com.dev.order.dto.PaymentRequest;
 import com.dev.order.dto.PaymentResponse;
 import com.dev.order.exception.*;
+import com.dev.order.repository.IdempotencyKeyRepository;
 import com.dev.order.repository.OrderRepository;
 import com.dev.order.repository.PaymentRepository;
 import com.dev.order.security.AuthenticatedUser;
 import com.dev.order.security.RequestContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyKeyFilter idempotencyKeyFilter;
+    private final PaymentReplayCache paymentReplayCache;
+    private final PaymentSettlementPipeline paymentSettlementPipeline;
+    private final PaymentProcessorClient paymentProcessorClient;
+    private final OrderTransitionService orderTransitionService;
+    private final TransactionRetry transactionRetry;
+    private final SingleFlight<String, PaymentOutcome> paymentFlights = new SingleFlight<>();
+    private static final int MAX_BULK_IDS = 100;
+    private final Counter coalescedRequests;
 
-    public PaymentService(PaymentRepository paymentRepository, OrderRepository orderRepository) {
+    //Outcome shared with coalesced duplicates; carries the owner so followers are ownership-checked too
+    private record PaymentOutcome(Long orderId, Long customerId, PaymentResult paymentResult) {}
+
+    public PaymentService(PaymentRepository paymentRepository, OrderRepository orderRepository,
+                          IdempotencyKeyRepository idempotencyKeyRepository, IdempotencyKeyFilter idempotencyKeyFilter, PaymentReplayCache paymentReplayCache,
+                          PaymentSettlementPipeline paymentSettlementPipeline, PaymentProcessorClient paymentProcessorClient,
+                          OrderTransitionService orderTransitionService, TransactionRetry transactionRetry,
+                          MeterRegistry meterRegistry) {
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.idempotencyKeyFilter = idempotencyKeyFilter;
+        this.paymentReplayCache = paymentReplayCache;
+        this.paymentSettlementPipeline = paymentSettlementPipeline;
+        this.paymentProcessorClient = paymentProcessorClient;
+        this.orderTransitionService = orderTransitionService;
+        this.transactionRetry = transactionRetry;
+        this.coalescedRequests = Counter.builder("payments.idempotency.coalesced")
+                .description("Concurrent duplicate payment requests answered from an in-flight leader")
+                .register(meterRegistry);
+        Gauge.builder("payments.idempotency.in.flight", paymentFlights, SingleFlight::inFlight)
+                .description("Idempotency keys currently being processed")
+                .register(meterRegistry);
     }
-    @Transactional
     public PaymentResult processPayment(Long orderId, PaymentRequest request, String idempotencyKey) {
-        Optional<Payment> payment = paymentRepository.findByIdempotencyKey(idempotencyKey);
-        //Return the existing  payment status if payment already done
-        if(payment.isPresent()) {
-            Payment existingPayment = payment.get();
-            //check if idempotencyKey belongs to the given orderId
-            if(!existingPayment.getOrderId().equals(orderId)) {
+        Long customerId = getCurrentCustomerId();
+        //Canonical form: upper- and lower-case spellings of one UUID are the same key everywhere (cache, filter, table)
+        String canonicalKey = UUID.fromString(idempotencyKey).toString();
+        //Replay from memory: no transaction, no database round trip
+        PaymentReplayCache.Entry cached = paymentReplayCache.get(canonicalKey);
+        if(cached != null) {
+            //Same cloaking as the database replay path: foreign order or customer looks like a missing order
+            if(!cached.orderId().equals(orderId) || !cached.customerId().equals(customerId)) {
                 throw new OrderNotFoundException(orderId);
             }
-            orderRepository.findByIdAndCustomerId(orderId, getCurrentCustomerId()).orElseThrow(
-                    () -> new OrderNotFoundException(orderId));
-            PaymentResponse existingPaymentResponse = buildPaymentResponse(existingPayment);
-            log.debug("Idempotency replay detected for orderId={}", orderId);
-            return new PaymentResult(existingPaymentResponse, false);
+            log.debug("Idempotency replay served from cache for orderId={}", orderId);
+            return new PaymentResult(cached.paymentResponse(), false);
+        }
+
+        //Coalesce concurrent duplicates: one caller runs the payment, the others replay its outcome
+        SingleFlight.Result<PaymentOutcome> flight = paymentFlights.execute(canonicalKey,
+                () -> new PaymentOutcome(orderId, customerId, processPaymentOnce(orderId, request, canonicalKey)));
+        PaymentOutcome outcome = flight.value();
+        if(!flight.shared()) {
+            return outcome.paymentResult();
+        }
+        if(!outcome.orderId().equals(orderId) || !outcome.customerId().equals(customerId)) {
+            throw new OrderNotFoundException(orderId);
+        }
+        coalescedRequests.increment();
+        log.debug("Idempotency replay coalesced with in-flight request for orderId={}", orderId);
+        return new PaymentResult(outcome.paymentResult().paymentResponse(), false);
+    }
+    private PaymentResult processPaymentOnce(Long orderId, PaymentRequest request, String idempotencyKey) {
+        //Definite filter miss: the key was never inserted here, skip the idempotency lookup
+        boolean lookupExisting = idempotencyKeyFilter.mightContain(idempotencyKey);
+        PaymentResult paymentResult;
+        try {
+            //Deadlock / lock wait victims are re-run here; the client only sees contention that outlasts the retries
+            paymentResult = transactionRetry.execute("processPayment",
+                    status -> executePayment(orderId, request, idempotencyKey, lookupExisting));
+        } catch (DataIntegrityViolationException ex) {
+            if (lookupExisting) {
+                throw ex;
+            }
+            //The idempotency_keys primary key is the final arbiter: the key was written elsewhere, resolve it as a replay
+            log.warn("Idempotency key already stored after a filter miss. Retrying with lookup. orderId={}", orderId);
+            idempotencyKeyFilter.put(idempotencyKey);
+            paymentResult = transactionRetry.execute("processPayment",
+                    status -> executePayment(orderId, request, idempotencyKey, true));
+        }
+        //Sync mode: the new payment is committed as PENDING, settle it now with no transaction or connection held
+        if(paymentResult.isNewlyCreated() && !paymentSettlementPipeline.isEnabled()) {
+            return settlePayment(paymentResult.paymentResponse(), request);
+        }
+        return paymentResult;
+    }
+    private PaymentResult executePayment(Long orderId, PaymentRequest request, String idempotencyKey, boolean lookupExisting) {
+        if(lookupExisting) {
+            Optional<Payment> payment = idempotencyKeyRepository.findPaymentByIdempotencyKey(UUID.fromString(idempotencyKey));
+            //Return the existing  payment status if payment already done
+            if(payment.isPresent()) {
+                Payment existingPayment = payment.get();
+                //check if idempotencyKey belongs to the given orderId
+                if(!existingPayment.getOrderId().equals(orderId)) {
+                    throw new OrderNotFoundException(orderId);
+                }
+                Order existingOrder = orderRepository.findByIdAndCustomerId(orderId, getCurrentCustomerId()).orElseThrow(
+                        () -> new OrderNotFoundException(orderId));
+                PaymentResponse existingPaymentResponse = buildPaymentResponse(existingPayment);
+                //A PENDING payment is still being settled; only terminal responses are safe to replay from memory
+                if(existingPayment.getPaymentState() != PaymentState.PENDING) {
+                    paymentReplayCache.putOnCommit(idempotencyKey,
+                            new PaymentReplayCache.Entry(orderId, existingOrder.getCustomerId(), existingPaymentResponse));
+                }
+                log.debug("Idempotency replay detected for orderId={}", orderId);
+                return new PaymentResult(existingPaymentResponse, false);
+            }
+            idempotencyKeyFilter.recordFalsePositive();
         }
 
         //Check order existence or cloak as 404 (defensive)
@@ -70,36 +176,105 @@ public class PaymentService {
             throw new PaymentCurrencyMismatchException(orderId);
         }
 
-        //persist new payment
+        //Shed before anything is written: full settlement queue (async) or unavailable processor (sync)
+        if(paymentSettlementPipeline.isEnabled()) {
+            paymentSettlementPipeline.ensureCapacity();
+        } else {
+            paymentProcessorClient.ensureAvailable();
+        }
+
+        //persist new payment as PENDING; it is settled once this transaction has committed
         log.info("Payment initiated. orderId={}", orderId);
-        Payment newPayment = new Payment(existingOrder, request.amount(), existingOrder.getCurrency(), idempotencyKey);
-        newPayment.markAsCompleted();
+        Payment newPayment = new Payment(existingOrder, request.amount(), existingOrder.getCurrency());
         Payment savedNewPayment = paymentRepository.save(newPayment);
-        log.info("Payment completed. paymentId={}, orderId={}", savedNewPayment.getPaymentId(), orderId);
-
-        // Transition order state: CREATED → PAID
-        existingOrder.markAsPaid();
-        log.info("Order marked as PAID orderId={}", orderId);
-        PaymentResponse newPaymentResponse = buildPaymentResponse(savedNewPayment);
-        return new PaymentResult(newPaymentResponse, true);
+        //A concurrent duplicate fails here on the primary key, rolling back the payment with it.
+        //Flushed before the claim, so a duplicate of an accepted payment is resolved as a replay, not as PAYMENT_PENDING
+        idempotencyKeyRepository.save(new IdempotencyKey(UUID.fromString(idempotencyKey), savedNewPayment));
+        idempotencyKeyRepository.flush();
+        //Claim the order (payment_pending, version + 1): a second payment with another key is rejected with 409
+        //until this one is settled, whether it races this request or arrives after a timeout
+        orderTransitionService.claimForPayment(existingOrder);
+        idempotencyKeyFilter.put(idempotencyKey);
+        if(paymentSettlementPipeline.isEnabled()) {
+            paymentSettlementPipeline.enqueueOnCommit(savedNewPayment.getPaymentId());
+            log.info("Payment accepted for settlement. paymentId={}, orderId={}", savedNewPayment.getPaymentId(), orderId);
+        }
+        return new PaymentResult(buildPaymentResponse(savedNewPayment), true);
+    }
+    private PaymentResult settlePayment(PaymentResponse pendingPayment, PaymentRequest request) {
+        //Bulkhead, deadline and circuit breaker apply here; without a decision the payment stays PENDING for the recovery sweep.
+        //It is already committed and will still be settled, so it is reported as accepted (202, poll it) and not as
+        //a failure a client would retry with a new key
+        PaymentProcessor.Decision decision;
+        try {
+            decision = paymentProcessorClient.settle(new PaymentProcessor.SettlementRequest(
+                    pendingPayment.paymentId(), pendingPayment.orderId(), pendingPayment.amount(), request.currency()));
+        } catch (PaymentProcessorException ex) {
+            log.warn("Payment left PENDING for the recovery sweep. paymentId={}, orderId={}, reason={}",
+                    pendingPayment.paymentId(), pendingPayment.orderId(), ex.getReason());
+            return new PaymentResult(pendingPayment, true);
+        }
+        // Transition payment (COMPLETED / FAILED) and order state (CREATED → PAID) in one short transaction
+        PaymentResponse settledPayment = paymentSettlementPipeline.settleNow(pendingPayment.paymentId(), decision);
+        if(settledPayment == null) {
+            //Settled concurrently by a recovery worker: report what was stored
+            settledPayment = paymentRepository.findResponseByIdAndCustomerId(pendingPayment.paymentId(), getCurrentCustomerId())
+                    .orElseThrow(() -> new PaymentNotFoundException(pendingPayment.paymentId()));
+        }
+        log.info("Payment settled. paymentId={}, orderId={}, paymentState={}",
+                settledPayment.paymentId(), settledPayment.orderId(), settledPayment.paymentState());
+        return new PaymentResult(settledPayment, true);
     }
     @Transactional(readOnly = true)
     public PaymentResult fetchPayment(Long paymentId) {
-        // Fetch payment or cloak as 404
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() ->
-                        new PaymentNotFoundException(paymentId));
-
-        // Fetch owning order or cloak as 404 (defensive)
-        Order order = orderRepository.findByIdAndCustomerId(payment.getOrderId(), getCurrentCustomerId())
+        // Fetch owned payment in one statement or cloak as 404 (missing and foreign look the same)
+        PaymentResponse paymentResponse = paymentRepository.findResponseByIdAndCustomerId(paymentId, getCurrentCustomerId())
                 .orElseThrow(() ->
                         new PaymentNotFoundException(paymentId));
-        PaymentResponse paymentResponse = buildPaymentResponse(payment);
         log.debug("Payment fetched. paymentId={}, payment_state={}",
-                payment.getPaymentId(),
-                payment.getPaymentState());
+                paymentResponse.paymentId(),
+                paymentResponse.paymentState());
         return new PaymentResult(paymentResponse, false);
     }
+    /**
+     * Multi-get for reconciliation workers: one IN (...) query joined to orders for ownership.
+     * Ids that are missing or owned by someone else are both reported as notFound.
+     */
+    @Transactional(readOnly = true)
+    public BulkPaymentResponse fetchPayments(List<Long> paymentIds) {
+        Set<Long> requestedIds = new LinkedHashSet<>(paymentIds);
+        // Defensive: reject instead of capping, a truncated lookup would report real payments as not found
+        if(requestedIds.size() > MAX_BULK_IDS) {
+            throw new InvalidRequestException(
+                    String.format("At most %d ids can be requested at once", MAX_BULK_IDS));
+        }
+        Map<Long, PaymentResponse> found = paymentRepository.findResponsesByIdInAndCustomerId(requestedIds, getCurrentCustomerId())
+                .stream()
+                .collect(Collectors.toMap(PaymentResponse::paymentId, Function.identity()));
+        List<PaymentResponse> payments = new ArrayList<>(found.size());
+        List<Long> notFound = new ArrayList<>();
+        for(Long paymentId : requestedIds) {
+            PaymentResponse paymentResponse = found.get(paymentId);
+            if(paymentResponse != null) {
+                payments.add(paymentResponse);
+            } else {
+                notFound.add(paymentId);
+            }
+        }
+        log.debug("Payments multi-get. requested={}, found={}", requestedIds.size(), payments.size());
+        return new BulkPaymentResponse(payments, notFound);
+    }
+    @Transactional(readOnly = true)
+    public OrderPaymentsResponse fetchPaymentsForOrder(Long orderId) {
+        Long customerId = getCurrentCustomerId();
+        List<PaymentResponse> payments = paymentRepository.findResponsesByOrderIdAndCustomerId(orderId, customerId);
+        // Empty result: distinguish "no payments yet" from a missing / foreign order (cloaked 404)
+        if(payments.isEmpty() && !orderRepository.existsByIdAndCustomerId(orderId, customerId)) {
+            throw new OrderNotFoundException(orderId);
+        }
+        log.debug("Payments fetched for orderId={}, count={}", orderId, payments.size());
+        return new OrderPaymentsResponse(orderId, payments);
+    }
     private Long getCurrentCustomerId() {
         // Ownership check (cloaked)
         AuthenticatedUser user = RequestContext.get();
@@ -108,7 +283,7 @@ public class PaymentService {
         }
         return user.userId();
     }
-    private PaymentResponse buildPaymentResponse(Payment payment) {
+    PaymentResponse buildPaymentResponse(Payment payment) {
         return new PaymentResponse(
                 payment.getPaymentId(),
                 payment.getOrderId(),
@@ -0,0 +1,393 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.Order;
+import com.dev.order.domain.OrderState;
+import com.dev.order.domain.Payment;
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.PaymentResponse;
+import com.dev.order.exception.PaymentProcessorException;
+import com.dev.order.exception.ServiceOverloadedException;
+import com.dev.order.repository.IdempotencyKeyRepository;
+import com.dev.order.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pipeline that settles payments accepted as PENDING in async mode.
+ * It also finishes synchronous payments whose processor call timed out or was short-circuited.
+ * The in-memory queue only carries payment ids as a hint: payments.payment_state stays the source of truth,
+ * so ids dropped on overflow, on shutdown or by a crash are offered again by the recovery sweep.
+ * Each batch is read in a short transaction, sent to the processor with no transaction held,
+ * and written back in one transaction (one transaction per payment if the batch write fails).
+ */
+@Component
+@Slf4j
+public class PaymentSettlementPipeline {
+    private static final long POLL_TIMEOUT_MS = 500;
+    private static final long RETRY_AFTER_SECONDS = 1;
+    private static final int MAX_RECOVERY_BATCH = 1000;
+
+    private final PaymentRepository paymentRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderTransitionService orderTransitionService;
+    private final PaymentProcessorClient paymentProcessorClient;
+    private final PaymentReplayCache paymentReplayCache;
+    private final OutboxWriter outboxWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final BlockingQueue<Long> queue;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int workers;
+    private final Duration recoveryInterval;
+    private final Duration recoveryGrace;
+    private final Counter rejected;
+    private final Counter deferred;
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter refundRequired;
+    private final Counter processorErrors;
+    private final Timer settlementLatency;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+    private ExecutorService workerPool;
+    private PeriodicTask recovery;
+
+    public PaymentSettlementPipeline(PaymentRepository paymentRepository,
+                                     IdempotencyKeyRepository idempotencyKeyRepository,
+                                     OrderTransitionService orderTransitionService,
+                                     PaymentProcessorClient paymentProcessorClient,
+                                     PaymentReplayCache paymentReplayCache,
+                                     OutboxWriter outboxWriter,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.payments.async.enabled:false}") boolean enabled,
+                                     @Value("${app.payments.async.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${app.payments.async.batch-size:50}") int batchSize,
+                                     @Value("${app.payments.async.workers:2}") int workers,
+                                     @Value("${app.payments.async.recovery-interval:30s}") Duration recoveryInterval,
+                                     @Value("${app.payments.async.recovery-grace:30s}") Duration recoveryGrace) {
+        this.paymentRepository = paymentRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.orderTransitionService = orderTransitionService;
+        this.paymentProcessorClient = paymentProcessorClient;
+        this.paymentReplayCache = paymentReplayCache;
+        this.outboxWriter = outboxWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.recoveryInterval = recoveryInterval;
+        this.recoveryGrace = recoveryGrace;
+        Gauge.builder("payments.settlement.queue.depth", queue, BlockingQueue::size)
+                .description("Accepted payments waiting for a settlement worker")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("payments.settlement.rejected")
+                .description("Payments shed with 503 because the settlement queue was full")
+                .register(meterRegistry);
+        this.deferred = Counter.builder("payments.settlement.deferred")
+                .description("Committed payments that did not fit the queue and wait for the recovery sweep")
+                .register(meterRegistry);
+        this.completed = Counter.builder("payments.settlement.outcomes")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.failed = Counter.builder("payments.settlement.outcomes")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.refundRequired = Counter.builder("payments.settlement.outcomes")
+                .tag("outcome", "refund_required")
+                .register(meterRegistry);
+        this.processorErrors = Counter.builder("payments.settlement.processor.errors")
+                .description("Settlements without a processor decision; the payment stays PENDING")
+                .register(meterRegistry);
+        this.settlementLatency = Timer.builder("payments.settlement.latency")
+                .description("Time from payment acceptance to its terminal state")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("payments.settlement.batch.size")
+                .description("Payment ids drained per settlement batch")
+                .register(meterRegistry);
+        log.info("Payment settlement pipeline configured. asyncMode={}, queueCapacity={}, batchSize={}, workers={}",
+                enabled, queueCapacity, batchSize, workers);
+    }
+
+    /**
+     * @return true when new payments are accepted as PENDING (202) instead of being settled on the request thread
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Backpressure: sheds a new payment before anything is persisted when the queue is full.
+     */
+    public void ensureCapacity() {
+        if (queue.remainingCapacity() == 0) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Payment settlement backlog is full, retry later", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    /**
+     * Hands the payment to the workers once the surrounding transaction commits,
+     * so a worker never reads a payment that may still roll back.
+     */
+    public void enqueueOnCommit(Long paymentId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(paymentId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(paymentId);
+            }
+        });
+    }
+
+    private void enqueue(Long paymentId) {
+        if (!queue.offer(paymentId)) {
+            //Lost the race for the last slot after ensureCapacity; the row stays PENDING until the recovery sweep
+            deferred.increment();
+            log.warn("Settlement queue full, deferring to recovery sweep. paymentId={}", paymentId);
+        }
+    }
+
+    //Always started: in sync mode the workers only see payments left PENDING by a failed processor call
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        workerPool = Executors.newFixedThreadPool(workers, namedThreads("payment-settlement-"));
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::drainLoop);
+        }
+        recovery = PeriodicTask.start("payment-settlement-recovery", Duration.ZERO, recoveryInterval, this::recoverPending);
+        log.info("Payment settlement pipeline started. workers={}", workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (recovery != null) {
+            recovery.stop();
+        }
+        if (workerPool != null) {
+            //Workers finish their current batch; whatever is still queued is recovered after restart
+            workerPool.shutdown();
+            try {
+                if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    workerPool.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                workerPool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            log.info("Payment settlement pipeline stopped. undrained={}", queue.size());
+        }
+    }
+
+    private void drainLoop() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                settleBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                //Nothing was committed for this batch; the recovery sweep offers it again
+                log.error("Settlement batch failed. size={}", batch.size(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void settleBatch(List<Long> paymentIds) {
+        batchSizes.record(paymentIds.size());
+        //Snapshot what still needs settling; duplicates and already settled ids drop out here.
+        //Not read-only on purpose: ids were just committed on the primary and a lagging replica would not see them yet
+        List<PaymentProcessor.SettlementRequest> requests = transactionTemplate.execute(status ->
+                paymentRepository.findByPaymentIdInAndPaymentState(paymentIds, PaymentState.PENDING).stream()
+                        .map(payment -> new PaymentProcessor.SettlementRequest(payment.getPaymentId(),
+                                payment.getOrderId(), payment.getAmount(), payment.getCurrency()))
+                        .toList());
+        if (requests == null || requests.isEmpty()) {
+            return;
+        }
+        //No transaction or connection is held while the processor works
+        Map<Long, PaymentProcessor.Decision> decisions = new HashMap<>();
+        for (PaymentProcessor.SettlementRequest request : requests) {
+            PaymentProcessor.Decision decision = callProcessor(request);
+            if (decision != null) {
+                decisions.put(request.paymentId(), decision);
+            }
+        }
+        if (decisions.isEmpty()) {
+            return;
+        }
+        try {
+            recordSettled(transactionTemplate.execute(status -> applyDecisions(decisions)));
+        } catch (RuntimeException ex) {
+            //One conflicting order must not hold back the rest of the batch
+            log.warn("Batched settlement rolled back, retrying per payment. size={}", decisions.size(), ex);
+            decisions.forEach((paymentId, decision) -> {
+                try {
+                    recordSettled(transactionTemplate.execute(status -> applyDecisions(Map.of(paymentId, decision))));
+                } catch (RuntimeException paymentEx) {
+                    log.error("Settlement failed, left PENDING for recovery. paymentId={}", paymentId, paymentEx);
+                }
+            });
+        }
+    }
+
+    private PaymentProcessor.Decision callProcessor(PaymentProcessor.SettlementRequest request) {
+        try {
+            return paymentProcessorClient.settle(request);
+        } catch (PaymentProcessorException ex) {
+            processorErrors.increment();
+            log.warn("No processor decision, left PENDING for recovery. paymentId={}, reason={}",
+                    request.paymentId(), ex.getReason());
+            return null;
+        }
+    }
+
+    /**
+     * Synchronous path: applies one decision in its own transaction.
+     * @return the settled payment, or null if it was no longer PENDING (settled concurrently by a worker)
+     */
+    PaymentResponse settleNow(Long paymentId, PaymentProcessor.Decision decision) {
+        List<Payment> settled = transactionTemplate.execute(status -> applyDecisions(Map.of(paymentId, decision)));
+        recordSettled(settled);
+        return settled.isEmpty() ? null : toPaymentResponse(settled.get(0));
+    }
+
+    private List<Payment> applyDecisions(Map<Long, PaymentProcessor.Decision> decisions) {
+        //Re-read under lock: only rows that are still PENDING are transitioned, exactly once
+        List<Payment> payments = paymentRepository.findForSettlement(decisions.keySet(), PaymentState.PENDING);
+        //One indexed lookup for the replay cache; a key already purged simply is not cached
+        Map<Long, String> idempotencyKeys = payments.isEmpty() ? Map.of() : idempotencyKeyRepository
+                .findByPaymentIds(payments.stream().map(Payment::getPaymentId).toList()).stream()
+                .collect(Collectors.toMap(key -> key.getPayment().getPaymentId(), key -> key.getIdempotencyKey().toString()));
+        for (Payment payment : payments) {
+            Order order = payment.getOrder();
+            boolean approved = decisions.get(payment.getPaymentId()) == PaymentProcessor.Decision.APPROVED;
+            if (approved && order.getOrderState() == OrderState.CREATED) {
+                payment.markAsCompleted();
+                orderTransitionService.markAsPaid(order);
+            } else {
+                if (approved) {
+                    //Charged, but the order no longer awaits payment: the PAYMENT_REFUND_REQUIRED event drives the refund
+                    log.warn("Approved payment for an order no longer awaiting payment, marking REFUND_REQUIRED. paymentId={}, orderId={}, orderState={}",
+                            payment.getPaymentId(), order.getId(), order.getOrderState());
+                    payment.markAsRefundRequired();
+                } else {
+                    payment.markAsFailed();
+                }
+                //The order can take a new payment
+                if (order.isPaymentPending()) {
+                    orderTransitionService.releasePaymentClaim(order);
+                }
+            }
+            outboxWriter.paymentSettled(payment);
+            //Terminal state only: from here on the response can no longer change
+            String idempotencyKey = idempotencyKeys.get(payment.getPaymentId());
+            if (idempotencyKey != null) {
+                paymentReplayCache.putOnCommit(idempotencyKey,
+                        new PaymentReplayCache.Entry(order.getId(), order.getCustomerId(), toPaymentResponse(payment)));
+            }
+        }
+        return payments;
+    }
+
+    private static PaymentResponse toPaymentResponse(Payment payment) {
+        return new PaymentResponse(
+                payment.getPaymentId(),
+                payment.getOrderId(),
+                payment.getAmount(),
+                payment.getPaymentState(),
+                payment.getCreatedAt()
+        );
+    }
+
+    private void recordSettled(List<Payment> payments) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Payment payment : payments) {
+            switch (payment.getPaymentState()) {
+                case COMPLETED -> completed.increment();
+                case REFUND_REQUIRED -> refundRequired.increment();
+                default -> failed.increment();
+            }
+            settlementLatency.record(Duration.between(payment.getCreatedAt(), now));
+        }
+    }
+
+    /**
+     * Offers PENDING payments that missed the queue (overflow, shutdown, crash, another node's backlog).
+     * Runs only while the live path is caught up, so a deep queue is not flooded with duplicates.
+     */
+    void recoverPending() {
+        if (!queue.isEmpty()) {
+            return;
+        }
+        LocalDateTime createdBefore = LocalDateTime.now().minus(recoveryGrace);
+        int limit = Math.min(queue.remainingCapacity(), MAX_RECOVERY_BATCH);
+        List<Long> paymentIds = readOnlyTransactionTemplate.execute(status ->
+                paymentRepository.findIdsByPaymentStateAndCreatedBefore(PaymentState.PENDING, createdBefore,
+                        PageRequest.of(0, limit)));
+        int offered = 0;
+        for (Long paymentId : paymentIds) {
+            if (!queue.offer(paymentId)) {
+                break;
+            }
+            offered++;
+        }
+        if (offered > 0) {
+            log.info("Pending payments recovered into the settlement queue. offered={}", offered);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,63 @@
+package com.dev.order.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job on its own daemon thread, run with a fixed delay between the end of one run and the start
+ * of the next (purge, expiry, outbox relay, settlement recovery, replica health checks).
+ * An exception escaping a run is logged and the schedule goes on; a bare ScheduledExecutorService would
+ * silently cancel the task instead. Jobs that count their failures still catch them themselves.
+ */
+@Slf4j
+public final class PeriodicTask {
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    private final String name;
+    private final ScheduledExecutorService scheduler;
+
+    private PeriodicTask(String name) {
+        this.name = name;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    public static PeriodicTask start(String name, Duration initialDelay, Duration delay, Runnable job) {
+        PeriodicTask task = new PeriodicTask(name);
+        task.scheduler.scheduleWithFixedDelay(task.guarded(job), initialDelay.toMillis(), delay.toMillis(),
+                TimeUnit.MILLISECONDS);
+        return task;
+    }
+
+    /**
+     * Lets a run in progress finish (jobs check their own running flag between batches), interrupting it
+     * only if it has not finished within a few seconds.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable guarded(Runnable job) {
+        return () -> {
+            try {
+                job.run();
+            } catch (RuntimeException ex) {
+                log.error("Periodic task run failed. task={}", name, ex);
+            }
+        };
+    }
+}
@@ -0,0 +1,215 @@
+package com.dev.order.service;
+
+import com.dev.order.exception.InvalidRequestException;
+import com.dev.order.service.PaymentProcessor.Decision;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Processor settlement file, read through read-only memory-mapped segments.
+ * Format: an optional header, then one line per settled payment: payment_id,amount,currency,decision
+ * (decision is APPROVED or DECLINED). Opening validates every line and builds a primitive index
+ * (payment_id -> line offset) sorted by payment_id; the lines themselves stay in the page cache and are
+ * re-parsed on demand, so heap use is 16 bytes per line. Lookups use absolute reads and are thread-safe.
+ */
+final class SettlementFile {
+    record Entry(long paymentId, BigDecimal amount, String currency, Decision decision) {}
+
+    //Segments end on a line boundary, so a line never spans two mappings
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path path;
+    private final MappedByteBuffer[] segments;
+    private final long[] segmentStarts;
+    private final long[] paymentIds;
+    private final long[] offsets;
+    private final int size;
+
+    private SettlementFile(Path path, MappedByteBuffer[] segments, long[] segmentStarts,
+                           long[] paymentIds, long[] offsets, int size) {
+        this.path = path;
+        this.segments = segments;
+        this.segmentStarts = segmentStarts;
+        this.paymentIds = paymentIds;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    static SettlementFile open(Path path) throws IOException {
+        return open(path, MAX_SEGMENT_BYTES);
+    }
+
+    static SettlementFile open(Path path, long maxSegmentBytes) throws IOException {
+        List<MappedByteBuffer> segments = new ArrayList<>();
+        List<Long> segmentStarts = new ArrayList<>();
+        //The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long start = 0;
+            while (start < fileSize) {
+                long length = Math.min(maxSegmentBytes, fileSize - start);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                if (start + length < fileSize) {
+                    int lastNewline = (int) length - 1;
+                    while (lastNewline >= 0 && segment.get(lastNewline) != '\n') {
+                        lastNewline--;
+                    }
+                    if (lastNewline < 0) {
+                        throw new InvalidRequestException("Settlement file line longer than " + maxSegmentBytes + " bytes");
+                    }
+                    length = lastNewline + 1;
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+                segments.add(segment);
+                segmentStarts.add(start);
+                start += length;
+            }
+        }
+        long[] paymentIds = new long[1024];
+        long[] offsets = new long[1024];
+        int size = 0;
+        boolean sorted = true;
+        for (int s = 0; s < segments.size(); s++) {
+            MappedByteBuffer segment = segments.get(s);
+            int position = 0;
+            while (position < segment.limit()) {
+                int end = lineEnd(segment, position);
+                String line = line(segment, position, end);
+                long offset = segmentStarts.get(s) + position;
+                position = end + 1;
+                if (line.isBlank() || (offset == 0 && !Character.isDigit(line.charAt(0)))) {
+                    continue;
+                }
+                Entry entry = parse(line, offset);
+                if (size == paymentIds.length) {
+                    paymentIds = Arrays.copyOf(paymentIds, size * 2);
+                    offsets = Arrays.copyOf(offsets, size * 2);
+                }
+                sorted &= size == 0 || paymentIds[size - 1] <= entry.paymentId();
+                paymentIds[size] = entry.paymentId();
+                offsets[size] = offset;
+                size++;
+            }
+        }
+        if (!sorted) {
+            sort(paymentIds, offsets, size);
+        }
+        return new SettlementFile(path, segments.toArray(MappedByteBuffer[]::new),
+                segmentStarts.stream().mapToLong(Long::longValue).toArray(), paymentIds, offsets, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long paymentIdAt(int index) {
+        return paymentIds[index];
+    }
+
+    Entry entryAt(int index) {
+        long offset = offsets[index];
+        int s = Arrays.binarySearch(segmentStarts, offset);
+        if (s < 0) {
+            s = -s - 2;
+        }
+        int position = (int) (offset - segmentStarts[s]);
+        return parse(line(segments[s], position, lineEnd(segments[s], position)), offset);
+    }
+
+    //Index of the first entry with payment_id >= paymentId (size() when there is none)
+    int lowerBound(long paymentId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (paymentIds[mid] < paymentId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    private static int lineEnd(MappedByteBuffer segment, int position) {
+        int end = position;
+        while (end < segment.limit() && segment.get(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private static String line(MappedByteBuffer segment, int from, int to) {
+        if (to > from && segment.get(to - 1) == '\r') {
+            to--;
+        }
+        byte[] bytes = new byte[to - from];
+        segment.get(from, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static Entry parse(String line, long offset) {
+        String[] fields = line.split(",", -1);
+        try {
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("expected 4 fields");
+            }
+            long paymentId = Long.parseLong(fields[0].trim());
+            if (paymentId <= 0) {
+                throw new IllegalArgumentException("payment_id must be positive");
+            }
+            return new Entry(paymentId, new BigDecimal(fields[1].trim()), fields[2].trim(),
+                    Decision.valueOf(fields[3].trim()));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException(
+                    String.format("Malformed settlement file line at byte %d: %s", offset, ex.getMessage()));
+        }
+    }
+
+    //Bottom-up merge sort of the parallel arrays by payment_id; stable, so duplicates keep file order
+    private static void sort(long[] paymentIds, long[] offsets, int size) {
+        long[] idBuffer = new long[size];
+        long[] offsetBuffer = new long[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = mid;
+                int out = low;
+                while (left < mid && right < high) {
+                    if (paymentIds[right] < paymentIds[left]) {
+                        idBuffer[out] = paymentIds[right];
+                        offsetBuffer[out++] = offsets[right++];
+                    } else {
+                        idBuffer[out] = paymentIds[left];
+                        offsetBuffer[out++] = offsets[left++];
+                    }
+                }
+                while (left < mid) {
+                    idBuffer[out] = paymentIds[left];
+                    offsetBuffer[out++] = offsets[left++];
+                }
+                while (right < high) {
+                    idBuffer[out] = paymentIds[right];
+                    offsetBuffer[out++] = offsets[right++];
+                }
+                System.arraycopy(idBuffer, low, paymentIds, low, high - low);
+                System.arraycopy(offsetBuffer, low, offsets, low, high - low);
+            }
+        }
+    }
+}
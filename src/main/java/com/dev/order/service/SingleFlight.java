@@ -0,0 +1,46 @@
+package com.dev.order.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-JVM request coalescing: for a given key only one caller (the leader) runs the work,
+ * concurrent callers with the same key wait for and share the leader's result.
+ * If the leader fails, the waiting callers contend again and one of them becomes the new leader.
+ */
+final class SingleFlight<K, V> {
+    record Result<V>(V value, boolean shared) {}
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    Result<V> execute(K key, Supplier<V> work) {
+        while (true) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+            if (inFlight == null) {
+                try {
+                    V value = work.get();
+                    flight.complete(value);
+                    return new Result<>(value, false);
+                } catch (RuntimeException | Error ex) {
+                    flight.completeExceptionally(ex);
+                    throw ex;
+                } finally {
+                    flights.remove(key, flight);
+                }
+            }
+            try {
+                return new Result<>(inFlight.join(), true);
+            } catch (CompletionException | CancellationException ex) {
+                //Leader failed: its outcome may not apply to this caller, so contend again
+            }
+        }
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dev.order.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a write transaction and re-runs it when the database chose it as a contention victim:
+ * MySQL deadlock (1213), lock wait timeout (1205) or a serialization failure (SQLSTATE 40001).
+ * The whole transaction is repeated from its first statement, so callbacks must not depend on state
+ * left behind by a rolled-back attempt. Attempts are bounded by max-attempts and by a deadline measured
+ * from the first attempt; the pause before each retry is full-jitter exponential backoff.
+ * Anything else (validation, optimistic conflicts, pool exhaustion) fails on the first attempt.
+ */
+@Component
+@Slf4j
+public class TransactionRetry {
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+
+    public TransactionRetry(PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.transactions.retry.max-attempts:4}") int maxAttempts,
+                            @Value("${app.transactions.retry.initial-backoff:10ms}") Duration initialBackoff,
+                            @Value("${app.transactions.retry.max-backoff:200ms}") Duration maxBackoff,
+                            @Value("${app.transactions.retry.deadline:1s}") Duration deadline) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.deadlineNanos = deadline.toNanos();
+    }
+
+    public <T> T execute(String operation, TransactionCallback<T> action) {
+        //Inside a caller's transaction a retry cannot help: the rollback-only outer transaction is lost anyway
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(action);
+        }
+        long startNanos = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(action);
+                if (attempt > 1) {
+                    outcome(operation, "recovered").increment();
+                    log.info("Transaction succeeded after retry. operation={}, attempts={}", operation, attempt);
+                }
+                return result;
+            } catch (RuntimeException ex) {
+                if (!isRetryable(ex)) {
+                    throw ex;
+                }
+                if (attempt >= maxAttempts) {
+                    outcome(operation, "exhausted").increment();
+                    log.warn("Transaction still contended after {} attempts. operation={}", attempt, operation);
+                    throw ex;
+                }
+                long backoffNanos = backoff(attempt);
+                if (System.nanoTime() - startNanos + backoffNanos > deadlineNanos) {
+                    outcome(operation, "deadline").increment();
+                    log.warn("Transaction retry deadline reached. operation={}, attempts={}", operation, attempt);
+                    throw ex;
+                }
+                Counter.builder("transactions.retries")
+                        .description("Transactions re-run after a deadlock, lock wait timeout or serialization failure")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .increment();
+                log.debug("Retrying contended transaction. operation={}, attempt={}, backoffMs={}, cause={}",
+                        operation, attempt, TimeUnit.NANOSECONDS.toMillis(backoffNanos), ex.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    //Spring's translation (CannotAcquireLockException, CannotSerializeTransactionException, ...) or the raw vendor code
+    static boolean isRetryable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof PessimisticLockingFailureException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException
+                    && (sqlException.getErrorCode() == MYSQL_DEADLOCK
+                    || sqlException.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT
+                    || SERIALIZATION_FAILURE.equals(sqlException.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Full jitter: uniform in [0, min(max, initial * 2^(attempt - 1))], so retrying victims spread out instead of colliding again
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private Counter outcome(String operation, String outcome) {
+        return Counter.builder("transactions.retry.outcome")
+                .description("Contended transactions by final outcome: recovered, exhausted or deadline")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,243 @@
+package com.dev.order.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class AdaptiveConcurrencyLimiterTest {
+    private static final int POOL_SIZE = 10;
+    private static final int CLIENTS = 64;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(3, 3, 3, 1.5, 0.2, clock::get);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(clock.get());
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void leavesTheHeadroomAboveAShareToFullShareRequests() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 4, 4, 1.5, 0.2, clock::get);
+
+        assertThat(limiter.tryAcquire(0.5)).isTrue();
+        assertThat(limiter.tryAcquire(0.5)).isTrue();
+        assertThat(limiter.tryAcquire(0.5)).isFalse();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(4);
+    }
+
+    @Test
+    void shrinksWhenRequestsQueueAndAdoptsALastingSlowdownAfterAProbe() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 100, 1.5, 0.2, clock::get);
+
+        //Flat latency under full load: room to grow
+        samples(limiter, 100, 10);
+        assertThat(limiter.limit()).isEqualTo(100);
+
+        //Requests suddenly take 10x as long: treated as queueing, the limit collapses
+        samples(limiter, 30, 100);
+        assertThat(limiter.limit()).isLessThan(20);
+
+        //Still slow long after: the next probe measures 100ms as the new baseline and the limit recovers
+        samples(limiter, 1000, 100);
+        assertThat(limiter.limit()).isEqualTo(100);
+    }
+
+    @Test
+    void neverShedsASteadyLoadItHasRoomFor() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 4, 200, 1.5, 0.05, clock::get);
+        int clients = 12;
+        int rejected = 0;
+        long[] started = new long[clients];
+
+        //Many probe intervals long; reads only get three quarters of the limit, so a probe would shed them
+        for (int round = 0; round < 20_000; round++) {
+            for (int c = 0; c < clients; c++) {
+                if (limiter.tryAcquire(0.75)) {
+                    started[c] = clock.get();
+                } else {
+                    rejected++;
+                    started[c] = -1;
+                }
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10 + round % 3));
+            for (int c = 0; c < clients; c++) {
+                if (started[c] >= 0) {
+                    limiter.release(started[c]);
+                }
+            }
+        }
+
+        assertThat(rejected).isZero();
+        assertThat(limiter.limit()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void exportsGetTheirOwnFixedSlots() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Filter filter = new ConcurrencyLimitFilterConfig((request, response, handler, ex) -> {
+            response.setStatus(503);
+            return null;
+        }, meterRegistry, true, 20, 4, 200, 1.5, 0.05, 0.75, 1)
+                .concurrencyLimitFilter().getFilter();
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        MockHttpServletResponse ordinary = new MockHttpServletResponse();
+        //While the only export slot is taken, another export is shed but other requests are not
+        FilterChain streaming = (request, response) -> {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/orders/export"), second, (req, res) -> { });
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/orders/1"), ordinary, (req, res) -> { });
+        };
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/orders/export"), first, streaming);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(second.getStatus()).isEqualTo(503);
+        assertThat(ordinary.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.counter("http.concurrency.rejected", "endpoint", "export").count()).isEqualTo(1);
+
+        MockHttpServletResponse afterwards = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/orders/export"), afterwards, (req, res) -> { });
+        assertThat(afterwards.getStatus()).isEqualTo(200);
+    }
+
+    /*
+     * Load test: 64 clients against a 10-connection pool whose queries degrade from 5ms to 50ms
+     * (the handler holds a pooled connection for the slowed query time). A quarter of the clients create payments.
+     * Compares the latency of admitted requests with the limiter off and on; shed clients back off 5ms.
+     * Payment writes have priority, so they should also make up a larger part of what is admitted.
+     * Run with: mvn test -Dstress=true -Dtest=AdaptiveConcurrencyLimiterTest
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "stress", matches = "true")
+    void keepsAdmittedLatencyStableWhenTheDatabaseSlowsDown() throws Exception {
+        LoadResult unlimited = runLoad(false);
+        LoadResult limited = runLoad(true);
+
+        log.info("Limiter off: {}", unlimited);
+        log.info("Limiter on: {}", limited);
+        assertThat(limited.rejected()).isPositive();
+        assertThat(limited.paymentP99Millis()).isLessThan(unlimited.paymentP99Millis() / 2);
+        assertThat(limited.otherP99Millis()).isLessThan(unlimited.otherP99Millis() / 2);
+        assertThat(limited.paymentsAdmitted()).isGreaterThan(unlimited.paymentsAdmitted());
+    }
+
+    record LoadResult(int paymentsAdmitted, int othersAdmitted, int rejected, long paymentP99Millis, long otherP99Millis) {
+    }
+
+    private LoadResult runLoad(boolean enabled) throws Exception {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:mem:concurrency-limit;DB_CLOSE_DELAY=-1");
+        hikariConfig.setMaximumPoolSize(POOL_SIZE);
+        hikariConfig.setConnectionTimeout(TimeUnit.SECONDS.toMillis(30));
+        AtomicLong queryMillis = new AtomicLong(5);
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Long> paymentLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> otherLatencies = Collections.synchronizedList(new ArrayList<>());
+        Filter filter = new ConcurrencyLimitFilterConfig((request, response, handler, ex) -> {
+            response.setStatus(503);
+            return null;
+        }, new SimpleMeterRegistry(), enabled, 20, 4, 200, 1.5, 0.05, 0.75, 4)
+                .concurrencyLimitFilter().getFilter();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try (HikariDataSource dataSource = new HikariDataSource(hikariConfig)) {
+            FilterChain slowQuery = (request, response) -> {
+                try (Connection connection = dataSource.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                    Thread.sleep(queryMillis.get());
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                boolean paymentWrite = c % 4 == 0;
+                futures.add(executor.submit(() -> {
+                    while (!stopped.get()) {
+                        MockHttpServletRequest request = paymentWrite
+                                ? new MockHttpServletRequest("POST", "/api/v1/orders/1/payments")
+                                : new MockHttpServletRequest("GET", "/api/v1/orders/1");
+                        MockHttpServletResponse response = new MockHttpServletResponse();
+                        long start = System.nanoTime();
+                        filter.doFilter(request, response, slowQuery);
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (response.getStatus() == 503) {
+                            rejected.incrementAndGet();
+                            Thread.sleep(5);
+                        } else if (measuring.get()) {
+                            (paymentWrite ? paymentLatencies : otherLatencies).add(millis);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            TimeUnit.SECONDS.sleep(3);
+            queryMillis.set(50);
+            //Let the limit settle on the slower database before measuring
+            TimeUnit.SECONDS.sleep(5);
+            measuring.set(true);
+            TimeUnit.SECONDS.sleep(10);
+            stopped.set(true);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new LoadResult(paymentLatencies.size(), otherLatencies.size(), rejected.get(),
+                p99(paymentLatencies), p99(otherLatencies));
+    }
+
+    //Holds the limiter at its limit so every sample counts, one millisecond of clock apart
+    private void samples(AdaptiveConcurrencyLimiter limiter, int count, long rttMillis) {
+        for (int i = 0; i < count; i++) {
+            while (limiter.tryAcquire()) {
+                //fill up
+            }
+            long now = clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+            limiter.release(now - TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        }
+    }
+
+    private static long p99(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.isEmpty() ? 0 : sorted.get((int) (sorted.size() * 0.99));
+    }
+}
@@ -0,0 +1,88 @@
+package com.dev.order.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void admitsTheBurstThenRefillsAtTheConfiguredRate() {
+        RateLimiter rateLimiter = new RateLimiter(10, 5, Duration.ofMinutes(10), 4, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiter.tryAcquire(7L)).isEqualTo(RateLimiter.ADMITTED);
+        }
+        assertThat(rateLimiter.tryAcquire(7L)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        //Other customers have their own bucket
+        assertThat(rateLimiter.tryAcquire(8L)).isEqualTo(RateLimiter.ADMITTED);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(rateLimiter.tryAcquire(7L)).isEqualTo(RateLimiter.ADMITTED);
+        assertThat(rateLimiter.tryAcquire(7L)).isPositive();
+    }
+
+    @Test
+    void evictsIdleCustomersInsteadOfGrowing() {
+        //One stripe of 64 slots: the 33rd customer triggers a rebuild
+        RateLimiter rateLimiter = new RateLimiter(10, 5, Duration.ofMinutes(1), 1, clock::get);
+        for (long customerId = 1; customerId <= 31; customerId++) {
+            rateLimiter.tryAcquire(customerId);
+        }
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        rateLimiter.tryAcquire(100L);
+        rateLimiter.tryAcquire(101L);
+
+        assertThat(rateLimiter.evictions()).isEqualTo(31);
+        assertThat(rateLimiter.trackedCustomers()).isEqualTo(2);
+        //A forgotten customer comes back with a full bucket
+        assertThat(rateLimiter.tryAcquire(1L)).isEqualTo(RateLimiter.ADMITTED);
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedTheBurst() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(1, 50, Duration.ofMinutes(10), 8, clock::get);
+        int threads = 8;
+        AtomicInteger admitted = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                long offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (rateLimiter.tryAcquire(42L) == RateLimiter.ADMITTED) {
+                            admitted.incrementAndGet();
+                        }
+                        //New customers force concurrent inserts and rebuilds on the same stripes
+                        rateLimiter.tryAcquire(1_000L + offset * 1_000 + i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //The clock is frozen, so exactly one burst is admitted
+        assertThat(admitted).hasValue(50);
+        assertThat(rateLimiter.trackedCustomers()).isEqualTo(8_001);
+    }
+}
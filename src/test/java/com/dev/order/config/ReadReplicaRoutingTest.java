@@ -0,0 +1,118 @@
+package com.dev.order.config;
+
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing against two embedded databases: each one answers "which database am I" from a db_role table.
+ */
+class ReadReplicaRoutingTest {
+    private static final Duration PIN_WINDOW = Duration.ofMillis(300);
+    private static final AuthenticatedUser CUSTOMER = new AuthenticatedUser(1L, UserRole.CUSTOMER);
+
+    private SwitchableDataSource replica;
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = embedded("primary");
+        replica = new SwitchableDataSource(embedded("replica"));
+        ReadYourWritesGuard readYourWritesGuard = new ReadYourWritesGuard(PIN_WINDOW);
+        replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica),
+                readYourWritesGuard, new SimpleMeterRegistry());
+        DataSource routing = DataSourceRoutingConfig.routingDataSource(primary, replicaRoutingDataSource, readYourWritesGuard);
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndWritesToPrimary() {
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("replica");
+        assertThat(readWrite.execute(status -> currentDatabase())).isEqualTo("primary");
+    }
+
+    @Test
+    void customerReadsFromPrimaryShortlyAfterWriting() throws InterruptedException {
+        RequestContext.set(CUSTOMER);
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE db_role SET touched = touched + 1"));
+
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("primary");
+
+        Thread.sleep(PIN_WINDOW.toMillis() + 100);
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("replica");
+    }
+
+    @Test
+    void unhealthyReplicaFallsBackToPrimaryUntilHealthCheckRestoresIt() {
+        replica.down = true;
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("primary");
+
+        //Still out of rotation while down
+        replicaRoutingDataSource.checkHealth();
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("primary");
+
+        replica.down = false;
+        replicaRoutingDataSource.checkHealth();
+        assertThat(readOnly.execute(status -> currentDatabase())).isEqualTo("replica");
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM db_role", String.class);
+    }
+
+    private static DataSource embedded(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE db_role (name VARCHAR(16) NOT NULL, touched INT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO db_role (name, touched) VALUES (?, 0)", name);
+        return dataSource;
+    }
+
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLTransientConnectionException("replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
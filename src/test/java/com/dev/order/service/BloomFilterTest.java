@@ -0,0 +1,90 @@
+package com.dev.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class BloomFilterTest {
+    private static final int EXPECTED_INSERTIONS = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void neverReportsAnInsertedKeyAsAbsent() {
+        BloomFilter filter = BloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+        List<String> keys = randomKeys(EXPECTED_INSERTIONS);
+        keys.forEach(filter::put);
+
+        assertThat(keys).allMatch(filter::mightContain);
+        assertThat(filter.insertions()).isEqualTo(EXPECTED_INSERTIONS);
+    }
+
+    @Test
+    void falsePositiveRateAtCapacityIsNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+        randomKeys(EXPECTED_INSERTIONS).forEach(filter::put);
+
+        //Fresh keys were never inserted: every hit is a false positive
+        long hits = randomKeys(EXPECTED_INSERTIONS).stream().filter(filter::mightContain).count();
+        double observed = (double) hits / EXPECTED_INSERTIONS;
+
+        assertThat(observed).isBetween(FALSE_POSITIVE_RATE / 2, FALSE_POSITIVE_RATE * 1.5);
+        assertThat(filter.expectedFalsePositiveRate()).isCloseTo(FALSE_POSITIVE_RATE, within(FALSE_POSITIVE_RATE / 5));
+        //~9.6 bits per key at 1%
+        assertThat(filter.memoryBytes()).isBetween(110_000L, 130_000L);
+    }
+
+    @Test
+    void concurrentInsertsSharingWordsAreNotLost() throws Exception {
+        int threads = 8;
+        BloomFilter filter = BloomFilter.create(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+        List<List<String>> keysPerThread = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            keysPerThread.add(randomKeys(EXPECTED_INSERTIONS / threads));
+        }
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<String> keys : keysPerThread) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    keys.forEach(filter::put);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //A lost CAS update would clear another thread's bit and turn its key into a false negative
+        assertThat(keysPerThread).allSatisfy(keys -> assertThat(keys).allMatch(filter::mightContain));
+        assertThat(filter.insertions()).isEqualTo(EXPECTED_INSERTIONS);
+    }
+
+    @Test
+    void rejectsNonsensicalSizing() {
+        assertThatThrownBy(() -> BloomFilter.create(0, FALSE_POSITIVE_RATE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(EXPECTED_INSERTIONS, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> randomKeys(int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+}
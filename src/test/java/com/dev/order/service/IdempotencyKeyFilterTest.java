@@ -0,0 +1,138 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.IdempotencyKey;
+import com.dev.order.domain.Order;
+import com.dev.order.domain.Payment;
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.PaymentRequest;
+import com.dev.order.repository.IdempotencyKeyRepository;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.PaymentRepository;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyKeyFilterTest {
+    private static final long CUSTOMER_ID = 1L;
+    private static final long ORDER_ID = 42L;
+    private static final BigDecimal AMOUNT = new BigDecimal("150.00");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyKeyRepository idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void reportsEveryKeyAsPossiblyPresentUntilWarmedUp() {
+        String stored = UUID.randomUUID().toString();
+        when(idempotencyKeyRepository.streamAllIdempotencyKeys()).thenReturn(Stream.of(UUID.fromString(stored)));
+        IdempotencyKeyFilter filter = filter(true);
+
+        //Before warm-up the filter has not seen the stored keys, so a miss would skip a lookup that finds one
+        assertThat(filter.mightContain(UUID.randomUUID().toString())).isTrue();
+        assertThat(filter.mightContain(stored)).isTrue();
+
+        filter.warmUp();
+        assertThat(filter.mightContain(stored)).isTrue();
+        assertThat(filter.mightContain(UUID.randomUUID().toString())).isFalse();
+        assertThat(meterRegistry.counter("payments.idempotency.filter.lookups", "result", "checked").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("payments.idempotency.filter.lookups", "result", "skipped").count()).isEqualTo(1);
+    }
+
+    @Test
+    void keysPutAfterWarmUpAreNoLongerSkipped() {
+        when(idempotencyKeyRepository.streamAllIdempotencyKeys()).thenReturn(Stream.empty());
+        IdempotencyKeyFilter filter = filter(true);
+        filter.warmUp();
+        String key = UUID.randomUUID().toString();
+
+        assertThat(filter.mightContain(key)).isFalse();
+        filter.put(key);
+        assertThat(filter.mightContain(key)).isTrue();
+    }
+
+    @Test
+    void aDisabledFilterAlwaysSendsTheLookup() {
+        IdempotencyKeyFilter filter = filter(false);
+        filter.warmUp();
+
+        assertThat(filter.mightContain(UUID.randomUUID().toString())).isTrue();
+        verify(idempotencyKeyRepository, never()).streamAllIdempotencyKeys();
+    }
+
+    /*
+     * The key was stored by another instance, so this node's filter misses it and the lookup is skipped.
+     * The idempotency_keys primary key rejects the insert and the payment is re-run with the lookup: a replay.
+     */
+    @Test
+    void aDuplicateKeyAfterAFilterMissIsResolvedAsAReplay() {
+        when(idempotencyKeyRepository.streamAllIdempotencyKeys()).thenReturn(Stream.empty());
+        IdempotencyKeyFilter filter = filter(true);
+        filter.warmUp();
+        String key = UUID.randomUUID().toString();
+
+        Order order = new Order(CUSTOMER_ID, AMOUNT, "USD");
+        ReflectionTestUtils.setField(order, "id", ORDER_ID);
+        Payment stored = new Payment(order, AMOUNT, "USD");
+        ReflectionTestUtils.setField(stored, "paymentId", 7L);
+        stored.markAsCompleted();
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findByIdAndCustomerId(anyLong(), anyLong())).thenReturn(Optional.of(order));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyKeyRepository.save(any(IdempotencyKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new DataIntegrityViolationException("Duplicate entry for key 'idempotency_keys.PRIMARY'"))
+                .when(idempotencyKeyRepository).flush();
+        when(idempotencyKeyRepository.findPaymentByIdempotencyKey(UUID.fromString(key))).thenReturn(Optional.of(stored));
+        OrderTransitionService orderTransitionService = mock(OrderTransitionService.class);
+        PaymentService paymentService = new PaymentService(
+                paymentRepository, orderRepository, idempotencyKeyRepository, filter,
+                new PaymentReplayCache(meterRegistry, 1_000, Duration.ofMinutes(1)),
+                mock(PaymentSettlementPipeline.class), mock(PaymentProcessorClient.class), orderTransitionService,
+                new TransactionRetry(mock(PlatformTransactionManager.class), meterRegistry,
+                        1, Duration.ZERO, Duration.ZERO, Duration.ZERO),
+                meterRegistry);
+        RequestContext.set(new AuthenticatedUser(CUSTOMER_ID, UserRole.CUSTOMER));
+
+        PaymentResult result = paymentService.processPayment(ORDER_ID, new PaymentRequest(AMOUNT, "USD"), key);
+
+        assertThat(result.isNewlyCreated()).isFalse();
+        assertThat(result.paymentResponse().paymentId()).isEqualTo(7L);
+        assertThat(result.paymentResponse().paymentState()).isEqualTo(PaymentState.COMPLETED);
+        //Looked up only on the second attempt; the order was never claimed for the rejected insert
+        verify(idempotencyKeyRepository, times(1)).findPaymentByIdempotencyKey(any());
+        verify(orderTransitionService, never()).claimForPayment(any());
+        //The key now lives in this node's filter, so the next duplicate goes straight to the lookup
+        assertThat(filter.mightContain(key)).isTrue();
+    }
+
+    private IdempotencyKeyFilter filter(boolean enabled) {
+        //Tiny expected size with a very low rate: a fresh random key is practically never a false positive
+        return new IdempotencyKeyFilter(idempotencyKeyRepository, meterRegistry, enabled, 1_000, 1e-9);
+    }
+}
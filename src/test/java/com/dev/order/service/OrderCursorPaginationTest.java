@@ -0,0 +1,141 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.Order;
+import com.dev.order.dto.CursorOrderResponse;
+import com.dev.order.dto.OrderResponse;
+import com.dev.order.repository.CustomerOrderCountRepository;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OutboxEventRepository;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyset pages against an embedded database (MySQL mode), with most orders sharing a created_at:
+ * the (created_at, order_id) seek must neither skip nor repeat a row at page boundaries inside a tie.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.url=jdbc:h2:mem:cursor;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCursorPaginationTest {
+    private static final long CUSTOMER_ID = 1L;
+    private static final LocalDateTime TIE = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private CustomerOrderCountRepository customerOrderCountRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private OrderService orderService;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAllInBatch();
+        //Eleven orders of the customer: one newer, nine created at the same instant, one older; plus another customer's
+        orders = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            orders.add(orderRepository.save(new Order(CUSTOMER_ID, new BigDecimal("10.0000"), "USD")));
+        }
+        orderRepository.save(new Order(2L, new BigDecimal("10.0000"), "USD"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("UPDATE orders SET created_at = ?", Timestamp.valueOf(TIE));
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE order_id = ?",
+                Timestamp.valueOf(TIE.plusMinutes(1)), orders.get(3).getId());
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE order_id = ?",
+                Timestamp.valueOf(TIE.minusMinutes(1)), orders.get(7).getId());
+        //Every third order is cancelled, the tie included
+        for (int i = 0; i < orders.size(); i += 3) {
+            jdbcTemplate.update("UPDATE orders SET order_state = 'CANCELLED' WHERE order_id = ?", orders.get(i).getId());
+        }
+
+        OutboxWriter outboxWriter = new OutboxWriter(outboxEventRepository);
+        OrderCounterService orderCounterService = new OrderCounterService(customerOrderCountRepository);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        orderService = new OrderService(orderRepository, orderCounterService,
+                new OrderTransitionService(orderRepository, orderCounterService, outboxWriter), outboxWriter,
+                new TransactionRetry(transactionManager, meterRegistry, 1, Duration.ZERO, Duration.ZERO, Duration.ZERO),
+                500);
+        RequestContext.set(new AuthenticatedUser(CUSTOMER_ID, UserRole.CUSTOMER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void pagesThroughATieWithoutSkippingOrRepeatingRows() {
+        List<Long> newestFirst = new ArrayList<>();
+        newestFirst.add(orders.get(3).getId());
+        orders.stream()
+                .filter(order -> order != orders.get(3) && order != orders.get(7))
+                .map(Order::getId)
+                .sorted(Comparator.reverseOrder())
+                .forEach(newestFirst::add);
+        newestFirst.add(orders.get(7).getId());
+
+        assertThat(readAll(null)).containsExactlyElementsOf(newestFirst);
+    }
+
+    @Test
+    void pagesThroughATieWithinAStateFilter() {
+        List<Long> cancelledNewestFirst = new ArrayList<>();
+        cancelledNewestFirst.add(orders.get(3).getId());
+        cancelledNewestFirst.add(orders.get(9).getId());
+        cancelledNewestFirst.add(orders.get(6).getId());
+        cancelledNewestFirst.add(orders.get(0).getId());
+
+        assertThat(readAll("cancelled")).containsExactlyElementsOf(cancelledNewestFirst);
+    }
+
+    //Two rows per page, so page boundaries fall inside the tie
+    private List<Long> readAll(String orderState) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 20; page++) {
+            CursorOrderResponse response = orderService.getOrdersByCursor(cursor, 2, orderState);
+            response.content().stream().map(OrderResponse::orderId).forEach(ids::add);
+            if (response.last()) {
+                assertThat(response.nextCursor()).isNull();
+                return ids;
+            }
+            assertThat(response.content()).hasSize(2);
+            cursor = response.nextCursor();
+        }
+        throw new AssertionError("Cursor paging did not terminate: " + ids);
+    }
+}
@@ -0,0 +1,61 @@
+package com.dev.order.service;
+
+import com.dev.order.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderCursorTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123_456_000);
+
+    @Test
+    void roundTripsThroughItsEncodedForm() {
+        OrderCursor cursor = new OrderCursor(CREATED_AT, 9_007_199_254_740_993L);
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("|", "=", "+", "/");
+        assertThat(OrderCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsATamperedToken() {
+        String token = new OrderCursor(CREATED_AT, 42L).encode();
+        //Flip the first character: still base64url, no longer a timestamp
+        String tampered = (token.charAt(0) == 'A' ? 'B' : 'A') + token.substring(1);
+
+        assertThatThrownBy(() -> OrderCursor.decode(tampered))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not base64!", "%%%", "a"})
+    void rejectsTokensThatAreNotBase64(String token) {
+        assertThatThrownBy(() -> OrderCursor.decode(token)).isInstanceOf(InvalidRequestException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2026-03-01T10:15:30|-5",
+            "2026-03-01T10:15:30|0",
+            "2026-03-01T10:15:30|",
+            "|42",
+            "2026-03-01T10:15:30",
+            "2026-03-01T10:15:30|42x",
+            "yesterday|42"})
+    void rejectsMalformedOrNonPositivePayloads(String raw) {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> OrderCursor.decode(token))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessage("Invalid cursor");
+    }
+}
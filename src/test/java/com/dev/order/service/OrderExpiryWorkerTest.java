@@ -0,0 +1,116 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OrderState;
+import com.dev.order.domain.OutboxEvent;
+import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.repository.CustomerOrderCountRepository;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OutboxEventRepository;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Expiry against an embedded database (MySQL mode): the claimExpired predicate, the CREATED -> CANCELLED
+ * transition with its counters and outbox events, and the orders it must leave alone.
+ * Not transactional itself, so every batch commits as it does in production.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.url=jdbc:h2:mem:expiry;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExpiryWorkerTest {
+    private static final long CUSTOMER_ID = 1L;
+    private static final BigDecimal AMOUNT = new BigDecimal("25.0000");
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private CustomerOrderCountRepository customerOrderCountRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void cancelsExpiredUnpaidOrdersAndLeavesPendingAndFreshOnesAlone() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OutboxWriter outboxWriter = new OutboxWriter(outboxEventRepository);
+        OrderCounterService orderCounterService = new OrderCounterService(customerOrderCountRepository);
+        OrderTransitionService orderTransitionService =
+                new OrderTransitionService(orderRepository, orderCounterService, outboxWriter);
+        OrderService orderService = new OrderService(orderRepository, orderCounterService, orderTransitionService,
+                outboxWriter, new TransactionRetry(transactionManager, meterRegistry, 1, Duration.ZERO, Duration.ZERO,
+                Duration.ZERO), 500);
+        RequestContext.set(new AuthenticatedUser(CUSTOMER_ID, UserRole.CUSTOMER));
+        Long expired1 = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        Long expired2 = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        Long expiredWithPendingPayment = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        Long fresh = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        RequestContext.clear();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Timestamp old = Timestamp.valueOf(LocalDateTime.now().minus(TTL).minusMinutes(5));
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE order_id IN (?, ?, ?)",
+                old, expired1, expired2, expiredWithPendingPayment);
+        //As left by an accepted payment that is still PENDING
+        jdbcTemplate.update("UPDATE orders SET payment_pending = TRUE WHERE order_id = ?", expiredWithPendingPayment);
+        outboxEventRepository.deleteAllInBatch();
+
+        //Batches of one: the worker keeps claiming until a batch comes back short
+        OrderExpiryWorker worker = new OrderExpiryWorker(orderRepository, orderTransitionService, transactionManager,
+                dataSource, meterRegistry, true, TTL, Duration.ofSeconds(30), 1, Duration.ZERO, 10, 1.0);
+        worker.start();
+        try {
+            assertThat(worker.expire()).isEqualTo(2);
+            assertThat(worker.expire()).isZero();
+        } finally {
+            worker.stop();
+        }
+
+        assertThat(orderRepository.findById(expired1)).get().extracting("orderState").isEqualTo(OrderState.CANCELLED);
+        assertThat(orderRepository.findById(expired2)).get().extracting("orderState").isEqualTo(OrderState.CANCELLED);
+        assertThat(orderRepository.findById(expiredWithPendingPayment)).get()
+                .extracting("orderState").isEqualTo(OrderState.CREATED);
+        assertThat(orderRepository.findById(fresh)).get().extracting("orderState").isEqualTo(OrderState.CREATED);
+
+        assertThat(orderCounterService.getTotal(CUSTOMER_ID, OrderState.CANCELLED)).isEqualTo(2);
+        assertThat(orderCounterService.getTotal(CUSTOMER_ID, OrderState.CREATED)).isEqualTo(2);
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getEventType, OutboxEvent::getAggregateId)
+                .containsExactlyInAnyOrder(tuple("ORDER_CANCELLED", expired1), tuple("ORDER_CANCELLED", expired2));
+        assertThat(meterRegistry.counter("orders.expiry.cancelled").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("orders.expiry.failures").count()).isZero();
+    }
+}
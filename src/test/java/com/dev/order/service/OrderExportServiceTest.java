@@ -0,0 +1,159 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OrderState;
+import com.dev.order.exception.InvalidRequestException;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Streaming export against an embedded database.
+ * The 1M-row case only proves something under a small heap; run with:
+ * mvn test -Dstress=true -Dtest=OrderExportServiceTest -DargLine=-Xmx64m
+ */
+@Slf4j
+class OrderExportServiceTest {
+    private static final AuthenticatedUser CUSTOMER = new AuthenticatedUser(1L, UserRole.CUSTOMER);
+    private static final long MILLION = 1_000_000L;
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void exportsOnlyTheCallersMatchingOrdersNewestFirst() throws IOException {
+        JdbcDataSource dataSource = embedded("jdbc:h2:mem:export-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        insert(jdbcTemplate, 1L, 1L, OrderState.PAID, LocalDateTime.of(2026, 3, 1, 10, 0));
+        insert(jdbcTemplate, 2L, 1L, OrderState.CREATED, LocalDateTime.of(2026, 3, 2, 10, 0));
+        insert(jdbcTemplate, 3L, 1L, OrderState.PAID, LocalDateTime.of(2026, 3, 3, 23, 59));
+        insert(jdbcTemplate, 4L, 2L, OrderState.PAID, LocalDateTime.of(2026, 3, 2, 10, 0));
+        OrderExportService orderExportService = new OrderExportService(dataSource, new SimpleMeterRegistry(), 2);
+        RequestContext.set(CUSTOMER);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        long csvRows = orderExportService.export(
+                orderExportService.prepare("csv", "paid", null, null), csv, false);
+        assertThat(csvRows).isEqualTo(2);
+        assertThat(csv.toString(StandardCharsets.UTF_8).lines().toList()).containsExactly(
+                "orderId,customerId,totalAmount,currency,orderState,createdAt,updatedAt",
+                "3,1,12.5000,USD,PAID,2026-03-03T23:59,2026-03-03T23:59",
+                "1,1,12.5000,USD,PAID,2026-03-01T10:00,2026-03-01T10:00");
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        long ndjsonRows = orderExportService.export(orderExportService.prepare(
+                "ndjson", null, LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 3)), ndjson, true);
+        List<String> lines = new String(new GZIPInputStream(new ByteArrayInputStream(ndjson.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).lines().toList();
+        assertThat(ndjsonRows).isEqualTo(2);
+        assertThat(lines).containsExactly(
+                "{\"orderId\":3,\"customerId\":1,\"totalAmount\":12.5000,\"currency\":\"USD\",\"orderState\":\"PAID\","
+                        + "\"createdAt\":\"2026-03-03T23:59\",\"updatedAt\":\"2026-03-03T23:59\"}",
+                "{\"orderId\":2,\"customerId\":1,\"totalAmount\":12.5000,\"currency\":\"USD\",\"orderState\":\"CREATED\","
+                        + "\"createdAt\":\"2026-03-02T10:00\",\"updatedAt\":\"2026-03-02T10:00\"}");
+    }
+
+    @Test
+    void rejectsInvalidFiltersBeforeWritingAnything() {
+        OrderExportService orderExportService = new OrderExportService(
+                embedded("jdbc:h2:mem:export-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1"), new SimpleMeterRegistry(), 100);
+        RequestContext.set(CUSTOMER);
+
+        assertThatThrownBy(() -> orderExportService.prepare("xml", null, null, null))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> orderExportService.prepare("csv", "unknown", null, null))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> orderExportService.prepare("csv", null, LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 1)))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    //File-backed database so the rows live on disk, not in the heap being measured
+    @Test
+    @EnabledIfSystemProperty(named = "stress", matches = "true")
+    void exportsMillionRowsInSmallHeap(@TempDir Path directory) throws IOException {
+        assumeTrue(Runtime.getRuntime().maxMemory() <= 128L * 1024 * 1024, "run with -DargLine=-Xmx64m");
+        JdbcDataSource dataSource = embedded("jdbc:h2:file:" + directory.resolve("orders"));
+        new JdbcTemplate(dataSource).update("""
+                INSERT INTO orders (order_id, customer_id, total_amount, currency, order_state, created_at, updated_at)
+                SELECT X, 1, 12.50, 'USD', 'PAID',
+                       DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00'),
+                       DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00')
+                FROM SYSTEM_RANGE(1, ?)
+                """, MILLION);
+        OrderExportService orderExportService = new OrderExportService(dataSource, new SimpleMeterRegistry(), 1000);
+        RequestContext.set(CUSTOMER);
+        CountingOutputStream output = new CountingOutputStream();
+
+        long startNanos = System.nanoTime();
+        long rows = orderExportService.export(orderExportService.prepare("ndjson", null, null, null), output, true);
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        log.info("Export finished. rows={}, gzipBytes={}, tookMs={}, maxHeapMb={}",
+                rows, output.bytes, elapsedMillis, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        assertThat(rows).isEqualTo(MILLION);
+    }
+
+    private static JdbcDataSource embedded(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE orders (
+                    order_id BIGINT PRIMARY KEY,
+                    customer_id BIGINT NOT NULL,
+                    total_amount DECIMAL(19,4) NOT NULL,
+                    currency VARCHAR(3) NOT NULL,
+                    order_state VARCHAR(16) NOT NULL,
+                    created_at TIMESTAMP NOT NULL,
+                    updated_at TIMESTAMP NOT NULL
+                )
+                """);
+        jdbcTemplate.execute("CREATE INDEX idx_orders_customer_created_desc ON orders (customer_id, created_at DESC)");
+        return dataSource;
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, long orderId, long customerId, OrderState orderState,
+                               LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO orders VALUES (?, ?, 12.50, 'USD', ?, ?, ?)",
+                orderId, customerId, orderState.name(), Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt));
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.PaymentRequest;
+import com.dev.order.exception.ConcurrentOrderModificationException;
+import com.dev.order.exception.InvalidOrderStateException;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hot-order contention benchmark: many threads race payments and cancellations against the same order.
+ * Reports transitions/sec and conflict rate, and asserts every order transitions exactly once.
+ * Needs the MySQL instance from application.yml; run with: mvn test -Dstress=true -Dtest=OrderTransitionStressTest
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+@Slf4j
+class OrderTransitionStressTest {
+    private static final int HOT_ORDERS = 200;
+    private static final int THREADS_PER_ORDER = 16;
+    private static final AuthenticatedUser CUSTOMER = new AuthenticatedUser(900_001L, UserRole.CUSTOMER);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private PaymentService paymentService;
+
+    @Test
+    void hotOrderTransitionsAreAppliedExactlyOnce() throws Exception {
+        BigDecimal amount = new BigDecimal("25.00");
+        LongAdder transitions = new LongAdder();
+        LongAdder conflicts = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder attempts = new LongAdder();
+        List<Integer> transitionsPerOrder = new ArrayList<>();
+        long elapsedNanos = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_PER_ORDER);
+        try {
+            for (int round = 0; round < HOT_ORDERS; round++) {
+                Long orderId = asCustomer(() -> orderService.createOrder(new CreateOrderRequest(amount, "USD")).orderId());
+                CyclicBarrier start = new CyclicBarrier(THREADS_PER_ORDER);
+                AtomicInteger applied = new AtomicInteger();
+                List<Future<?>> futures = new ArrayList<>();
+                long roundStart = System.nanoTime();
+                for (int t = 0; t < THREADS_PER_ORDER; t++) {
+                    boolean pay = t % 2 == 0;
+                    futures.add(executor.submit(() -> asCustomer(() -> {
+                        start.await();
+                        attempts.increment();
+                        try {
+                            if (pay) {
+                                PaymentResult paymentResult = paymentService.processPayment(
+                                        orderId, new PaymentRequest(amount, "USD"), UUID.randomUUID().toString());
+                                //Declined by the processor: stored as FAILED, the claim is released and the order is untouched
+                                //The claim keeps cancellations out until settlement, so an approval is never left without its order
+                                assertThat(paymentResult.paymentResponse().paymentState()).isNotEqualTo(PaymentState.REFUND_REQUIRED);
+                                if (paymentResult.paymentResponse().paymentState() != PaymentState.COMPLETED) {
+                                    rejected.increment();
+                                    return null;
+                                }
+                            } else {
+                                orderService.cancelOrder(orderId);
+                            }
+                            applied.incrementAndGet();
+                            transitions.increment();
+                        } catch (ConcurrentOrderModificationException | OptimisticLockingFailureException ex) {
+                            conflicts.increment();
+                        } catch (InvalidOrderStateException ex) {
+                            rejected.increment();
+                        }
+                        return null;
+                    })));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                elapsedNanos += System.nanoTime() - roundStart;
+                transitionsPerOrder.add(applied.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        log.info("Hot-order contention. orders={}, threadsPerOrder={}, attempts={}, transitions={}, conflicts={}, "
+                        + "stateRejections={}, transitionsPerSec={}, attemptsPerSec={}",
+                HOT_ORDERS, THREADS_PER_ORDER, attempts.sum(), transitions.sum(), conflicts.sum(), rejected.sum(),
+                Math.round(transitions.sum() / seconds), Math.round(attempts.sum() / seconds));
+
+        assertThat(transitionsPerOrder).containsOnly(1);
+    }
+
+    private interface Work<T> {
+        T run() throws Exception;
+    }
+
+    private static <T> T asCustomer(Work<T> work) throws Exception {
+        RequestContext.set(CUSTOMER);
+        try {
+            return work.run();
+        } finally {
+            RequestContext.clear();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.OutboxEvent;
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.CreateOrderRequest;
+import com.dev.order.dto.PaymentRequest;
+import com.dev.order.repository.CustomerOrderCountRepository;
+import com.dev.order.repository.IdempotencyKeyRepository;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.OutboxEventRepository;
+import com.dev.order.repository.PaymentRepository;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox round trip against an embedded database (MySQL mode): order and payment writes leave their events in
+ * outbox_events, the relay hands them to the sink in event-id order and deletes them, and a failing sink
+ * leaves them in the table for the next poll.
+ * Not transactional itself, so every service call commits as it does in production.
+ */
+@DataJpaTest(properties = {
+        "spring.test.database.replace=none",
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+    private static final AuthenticatedUser CUSTOMER = new AuthenticatedUser(1L, UserRole.CUSTOMER);
+    private static final BigDecimal AMOUNT = new BigDecimal("25.0000");
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired
+    private CustomerOrderCountRepository customerOrderCountRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryOutboxSink sink = new InMemoryOutboxSink();
+    private OrderService orderService;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAllInBatch();
+        OutboxWriter outboxWriter = new OutboxWriter(outboxEventRepository);
+        OrderCounterService orderCounterService = new OrderCounterService(customerOrderCountRepository);
+        OrderTransitionService orderTransitionService =
+                new OrderTransitionService(orderRepository, orderCounterService, outboxWriter);
+        TransactionRetry transactionRetry =
+                new TransactionRetry(transactionManager, meterRegistry, 1, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        PaymentProcessorClient paymentProcessorClient = mock(PaymentProcessorClient.class);
+        when(paymentProcessorClient.settle(any())).thenReturn(PaymentProcessor.Decision.APPROVED);
+        PaymentReplayCache paymentReplayCache = new PaymentReplayCache(meterRegistry, 1_000, Duration.ofMinutes(1));
+        PaymentSettlementPipeline paymentSettlementPipeline = new PaymentSettlementPipeline(
+                paymentRepository, idempotencyKeyRepository, orderTransitionService, paymentProcessorClient,
+                paymentReplayCache, outboxWriter, transactionManager, meterRegistry,
+                false, 10, 10, 1, Duration.ofSeconds(30), Duration.ofSeconds(30));
+        orderService = new OrderService(
+                orderRepository, orderCounterService, orderTransitionService, outboxWriter, transactionRetry, 500);
+        paymentService = new PaymentService(
+                paymentRepository, orderRepository, idempotencyKeyRepository, mock(IdempotencyKeyFilter.class),
+                paymentReplayCache, paymentSettlementPipeline, paymentProcessorClient, orderTransitionService,
+                transactionRetry, meterRegistry);
+        RequestContext.set(CUSTOMER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void createCancelAndPayAreRelayedInOrderAndDeleted() {
+        Long cancelledId = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        orderService.cancelOrder(cancelledId);
+        Long paidId = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        PaymentResult payment = paymentService.processPayment(
+                paidId, new PaymentRequest(AMOUNT, "USD"), UUID.randomUUID().toString());
+        Long paymentId = payment.paymentResponse().paymentId();
+        assertThat(payment.paymentResponse().paymentState()).isEqualTo(PaymentState.COMPLETED);
+
+        //Order events carry the row version, payment events none
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getEventType, OutboxEvent::getAggregateId, OutboxEvent::getAggregateVersion)
+                .containsExactlyInAnyOrder(
+                        tuple("ORDER_CREATED", cancelledId, 0L),
+                        tuple("ORDER_CANCELLED", cancelledId, 1L),
+                        tuple("ORDER_CREATED", paidId, 0L),
+                        tuple("ORDER_PAID", paidId, 2L),
+                        tuple("PAYMENT_COMPLETED", paymentId, null));
+
+        OutboxRelay relay = relay(sink);
+        assertThat(relay.relayBatch()).isEqualTo(5);
+
+        assertThat(sink.events())
+                .extracting(OutboxEvent::getEventType)
+                .containsExactly("ORDER_CREATED", "ORDER_CANCELLED", "ORDER_CREATED", "ORDER_PAID", "PAYMENT_COMPLETED");
+        assertThat(sink.events()).extracting(OutboxEvent::getEventId).isSorted();
+        assertThat(sink.events().get(4).getPayload())
+                .contains("\"orderId\":" + paidId, "\"paymentState\":\"COMPLETED\"");
+        assertThat(outboxEventRepository.count()).isZero();
+        assertThat(relay.relayBatch()).isZero();
+    }
+
+    @Test
+    void aFailingSinkLeavesTheBatchInTheTable() {
+        Long orderId = orderService.createOrder(new CreateOrderRequest(AMOUNT, "USD")).orderId();
+        orderService.cancelOrder(orderId);
+
+        OutboxRelay failing = relay(events -> {
+            throw new IllegalStateException("Broker unavailable");
+        });
+        assertThatThrownBy(failing::relayBatch).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxEventRepository.count()).isEqualTo(2);
+
+        //drain() swallows the failure so the periodic poll keeps running; the rows stay for the next one
+        failing.drain();
+        assertThat(outboxEventRepository.count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("outbox.relay.failures").count()).isEqualTo(1);
+
+        assertThat(relay(sink).relayBatch()).isEqualTo(2);
+        assertThat(sink.events()).extracting(OutboxEvent::getEventType)
+                .containsExactly("ORDER_CREATED", "ORDER_CANCELLED");
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    private OutboxRelay relay(OutboxSink outboxSink) {
+        return new OutboxRelay(outboxEventRepository, outboxSink, transactionManager, meterRegistry,
+                false, 100, Duration.ofMillis(200));
+    }
+}
@@ -0,0 +1,111 @@
+package com.dev.order.service;
+
+import com.dev.order.exception.PaymentProcessorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Request-thread starvation test. A fixed set of "Tomcat" threads serves a mix of cheap reads and payments.
+ * Once the processor degrades (slow and failing), calling it directly pins every request thread and reads
+ * collapse; through PaymentProcessorClient the calls are bounded, then short-circuited, and reads hold up.
+ * No database needed; run with: mvn test -Dstress=true -Dtest=PaymentProcessorLoadTest
+ */
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+@Slf4j
+class PaymentProcessorLoadTest {
+    private static final int REQUEST_THREADS = 50;
+    private static final double PAYMENT_SHARE = 0.1;
+    private static final long READ_COST_MILLIS = 1;
+    private static final Duration RUN_FOR = Duration.ofSeconds(3);
+    private static final Duration DEADLINE = Duration.ofMillis(200);
+    private static final PaymentProcessor.SettlementRequest REQUEST = new PaymentProcessor.SettlementRequest(
+            1L, 1L, new BigDecimal("25.00"), "USD");
+
+    private record LoadResult(long reads, long payments, long maxPaymentMillis) {
+        double readsPerSecond() {
+            return reads / (double) RUN_FOR.toSeconds();
+        }
+    }
+
+    private interface PaymentCall {
+        void run();
+    }
+
+    @Test
+    void guardedProcessorKeepsRequestThreadsAvailableWhileDegraded() throws Exception {
+        LocalPaymentProcessor stub = new LocalPaymentProcessor(Duration.ofMillis(5), Duration.ZERO, 0.0, 0.0);
+        PaymentProcessorClient client = new PaymentProcessorClient(stub, new SimpleMeterRegistry(),
+                10, Duration.ofMillis(10), DEADLINE,
+                20, 10, 0.5, Duration.ofMillis(150), 0.8,
+                Duration.ofSeconds(1), Duration.ofSeconds(10), 3);
+        try {
+            LoadResult healthy = run(() -> client.settle(REQUEST));
+            stub.degrade(Duration.ofSeconds(2), Duration.ZERO, 0.5);
+            LoadResult guarded = run(() -> client.settle(REQUEST));
+            LoadResult unguarded = run(() -> stub.settle(REQUEST));
+
+            log.info("Processor degradation. readsPerSec healthy={}, guarded={}, unguarded={}; "
+                            + "maxPaymentMs guarded={}, unguarded={}",
+                    Math.round(healthy.readsPerSecond()), Math.round(guarded.readsPerSecond()),
+                    Math.round(unguarded.readsPerSecond()), guarded.maxPaymentMillis(), unguarded.maxPaymentMillis());
+
+            assertThat(guarded.reads()).isGreaterThan(healthy.reads() / 2);
+            assertThat(guarded.reads()).isGreaterThan(unguarded.reads() * 5);
+            //Bulkhead wait + deadline, plus scheduling slack
+            assertThat(guarded.maxPaymentMillis()).isLessThan(DEADLINE.toMillis() + 300);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static LoadResult run(PaymentCall paymentCall) throws InterruptedException {
+        LongAdder reads = new LongAdder();
+        LongAdder payments = new LongAdder();
+        LongAccumulator maxPaymentMillis = new LongAccumulator(Math::max, 0);
+        long deadline = System.nanoTime() + RUN_FOR.toNanos();
+        List<Thread> threads = new ArrayList<>(REQUEST_THREADS);
+        for (int i = 0; i < REQUEST_THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() - deadline < 0) {
+                    if (ThreadLocalRandom.current().nextDouble() < PAYMENT_SHARE) {
+                        long started = System.nanoTime();
+                        try {
+                            paymentCall.run();
+                        } catch (PaymentProcessorException | IllegalStateException ex) {
+                            //Failed or shed payment: the request thread is free again, which is the point
+                        }
+                        maxPaymentMillis.accumulate((System.nanoTime() - started) / 1_000_000);
+                        payments.increment();
+                    } else {
+                        try {
+                            Thread.sleep(READ_COST_MILLIS);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                        if (System.nanoTime() - deadline < 0) {
+                            reads.increment();
+                        }
+                    }
+                }
+            }, "request-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new LoadResult(reads.sum(), payments.sum(), maxPaymentMillis.get());
+    }
+}
@@ -0,0 +1,161 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.ReconciliationResponse;
+import com.dev.order.dto.ReconciliationRunResponse;
+import com.dev.order.exception.ReconciliationRunNotFoundException;
+import com.dev.order.repository.PaymentRepository;
+import com.dev.order.repository.ReconciliationPayment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentReconciliationServiceTest {
+    private static final String FILE = "settlement-2026-10-17.csv";
+    private static final LocalDateTime OLD = LocalDateTime.now().minusDays(2);
+
+    record Row(Long paymentId, BigDecimal amount, String currency, PaymentState paymentState, LocalDateTime createdAt)
+            implements ReconciliationPayment {
+        public Long getPaymentId() { return paymentId; }
+        public BigDecimal getAmount() { return amount; }
+        public String getCurrency() { return currency; }
+        public PaymentState getPaymentState() { return paymentState; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+
+    private static final List<Row> PAYMENTS = List.of(
+            new Row(1L, new BigDecimal("10.0000"), "USD", PaymentState.COMPLETED, OLD),
+            new Row(2L, new BigDecimal("20.0000"), "USD", PaymentState.COMPLETED, OLD),
+            new Row(3L, new BigDecimal("30.0000"), "USD", PaymentState.COMPLETED, OLD),
+            new Row(5L, new BigDecimal("50.0000"), "USD", PaymentState.COMPLETED, OLD),
+            new Row(6L, new BigDecimal("60.0000"), "USD", PaymentState.PENDING, OLD),
+            new Row(7L, new BigDecimal("70.0000"), "USD", PaymentState.COMPLETED, LocalDateTime.now()),
+            new Row(8L, new BigDecimal("80.0000"), "EUR", PaymentState.FAILED, OLD));
+
+    //Unsorted, with a header: 4 and 1000 have no payment, 5 and 7 are absent, 8 is settled twice
+    private static final String SETTLEMENT = """
+            payment_id,amount,currency,decision
+            8,80.00,EUR,DECLINED
+            2,20.00,USD,DECLINED
+            1000,5.00,USD,APPROVED
+            1,10.00,USD,APPROVED
+            3,31.00,USD,APPROVED
+            8,80.00,EUR,DECLINED
+            4,40.00,USD,APPROVED
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsEveryMismatchTypeAcrossParallelChunks() throws IOException {
+        PaymentRepository paymentRepository = repository(new AtomicBoolean());
+        ReconciliationResponse response = service(paymentRepository).reconcile(FILE);
+
+        assertThat(response.complete()).isTrue();
+        assertThat(response.chunks()).isEqualTo(3);
+        assertThat(response.paymentsChecked()).isEqualTo(7);
+        assertThat(response.settlementRows()).isEqualTo(7);
+        assertThat(Files.readAllLines(Path.of(response.report()))).containsExactly(
+                "type,paymentId,localState,localAmount,localCurrency,processorDecision,processorAmount,processorCurrency",
+                "STATE_MISMATCH,2,COMPLETED,20.0000,USD,DECLINED,20.00,USD",
+                "AMOUNT_MISMATCH,3,COMPLETED,30.0000,USD,APPROVED,31.00,USD",
+                "MISSING_PAYMENT,4,,,,APPROVED,40.00,USD",
+                "MISSING_IN_SETTLEMENT,5,COMPLETED,50.0000,USD,,,",
+                "DUPLICATE_SETTLEMENT,8,FAILED,80.0000,EUR,DECLINED,80.00,EUR",
+                "MISSING_PAYMENT,1000,,,,APPROVED,5.00,USD");
+    }
+
+    @Test
+    void resumesFromCompletedChunksAfterAFailure() throws IOException {
+        AtomicBoolean failMiddleChunk = new AtomicBoolean(true);
+        PaymentRepository paymentRepository = repository(failMiddleChunk);
+        PaymentReconciliationService service = service(paymentRepository);
+
+        ReconciliationResponse interrupted = service.reconcile(FILE);
+        assertThat(interrupted.complete()).isFalse();
+        assertThat(interrupted.failedChunks()).isEqualTo(1);
+        assertThat(interrupted.report()).isNull();
+
+        failMiddleChunk.set(false);
+        ReconciliationResponse resumed = service.reconcile(FILE);
+        assertThat(resumed.complete()).isTrue();
+        assertThat(resumed.resumedChunks()).isEqualTo(2);
+        assertThat(resumed.mismatches()).containsEntry("MISSING_IN_SETTLEMENT", 1L).containsEntry("MISSING_PAYMENT", 2L);
+        //The first chunk was read once, by the interrupted run only
+        verify(paymentRepository, times(1)).findReconciliationPage(eq(0L), anyLong(), any());
+    }
+
+    @Test
+    void startedRunIsReportedByItsRunId() throws Exception {
+        PaymentReconciliationService service = service(repository(new AtomicBoolean()));
+
+        ReconciliationRunResponse started = service.start(FILE);
+        assertThat(started.status()).isEqualTo(ReconciliationRunResponse.Status.RUNNING);
+        assertThat(started.settlementFile()).isEqualTo(FILE);
+
+        ReconciliationRunResponse run = started;
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (run.status() == ReconciliationRunResponse.Status.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            run = service.status(started.runId());
+        }
+        assertThat(run.status()).isEqualTo(ReconciliationRunResponse.Status.FINISHED);
+        assertThat(run.finishedAt()).isNotNull();
+        assertThat(run.result().complete()).isTrue();
+        assertThat(run.result().mismatches()).containsEntry("MISSING_PAYMENT", 2L);
+        assertThatThrownBy(() -> service.status("unknown")).isInstanceOf(ReconciliationRunNotFoundException.class);
+        service.stop();
+    }
+
+    private PaymentReconciliationService service(PaymentRepository paymentRepository) throws IOException {
+        Path settlements = Files.createDirectories(directory.resolve("settlements"));
+        Files.writeString(settlements.resolve(FILE), SETTLEMENT);
+        return new PaymentReconciliationService(paymentRepository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), settlements.toString(), directory.resolve("work").toString(),
+                3, 2, 2, Duration.ofHours(1));
+    }
+
+    //Keyset pages over the fixture; chunk (3, 6] fails while failMiddleChunk is set
+    private static PaymentRepository repository(AtomicBoolean failMiddleChunk) {
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.findMaxPaymentId()).thenReturn(Optional.of(8L));
+        when(paymentRepository.findReconciliationPage(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            long lastId = invocation.getArgument(1);
+            Pageable limit = invocation.getArgument(2);
+            if (failMiddleChunk.get() && afterId >= 3 && lastId == 6) {
+                throw new QueryTimeoutException("simulated replica timeout");
+            }
+            return PAYMENTS.stream()
+                    .filter(row -> row.paymentId() > afterId && row.paymentId() <= lastId)
+                    .limit(limit.getPageSize())
+                    .map(ReconciliationPayment.class::cast)
+                    .toList();
+        });
+        return paymentRepository;
+    }
+}
@@ -0,0 +1,121 @@
+package com.dev.order.service;
+
+import com.dev.order.domain.Order;
+import com.dev.order.domain.Payment;
+import com.dev.order.domain.PaymentState;
+import com.dev.order.dto.PaymentRequest;
+import com.dev.order.dto.PaymentResponse;
+import com.dev.order.repository.IdempotencyKeyRepository;
+import com.dev.order.repository.OrderRepository;
+import com.dev.order.repository.PaymentRepository;
+import com.dev.order.security.AuthenticatedUser;
+import com.dev.order.security.RequestContext;
+import com.dev.order.security.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceConcurrencyTest {
+    private static final int CONCURRENT_REQUESTS = 32;
+    private static final long CUSTOMER_ID = 1L;
+    private static final long ORDER_ID = 42L;
+
+    @Test
+    void concurrentDuplicatesAreCoalescedIntoSingleInsert() throws Exception {
+        Order order = new Order(CUSTOMER_ID, new BigDecimal("150.00"), "USD");
+        ReflectionTestUtils.setField(order, "id", ORDER_ID);
+
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        IdempotencyKeyRepository idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+        AtomicInteger inserts = new AtomicInteger();
+        AtomicInteger constraintViolations = new AtomicInteger();
+        when(idempotencyKeyRepository.findPaymentByIdempotencyKey(any(UUID.class))).thenReturn(Optional.empty());
+        when(orderRepository.findByIdAndCustomerId(anyLong(), anyLong())).thenReturn(Optional.of(order));
+        //Behaves like the idempotency_keys primary key: only the first insert of the key succeeds
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            if (inserts.incrementAndGet() > 1) {
+                constraintViolations.incrementAndGet();
+                throw new DataIntegrityViolationException("Duplicate entry for key 'idempotency_keys.PRIMARY'");
+            }
+            //Hold the leader long enough for every duplicate to arrive while it is in flight
+            Thread.sleep(200);
+            Payment payment = invocation.getArgument(0);
+            ReflectionTestUtils.setField(payment, "paymentId", 7L);
+            return payment;
+        });
+
+        PaymentProcessorClient paymentProcessorClient = mock(PaymentProcessorClient.class);
+        PaymentSettlementPipeline paymentSettlementPipeline = mock(PaymentSettlementPipeline.class);
+        when(paymentProcessorClient.settle(any())).thenReturn(PaymentProcessor.Decision.APPROVED);
+        when(paymentSettlementPipeline.settleNow(anyLong(), any())).thenAnswer(invocation -> new PaymentResponse(
+                invocation.getArgument(0), ORDER_ID, new BigDecimal("150.00"), PaymentState.COMPLETED, LocalDateTime.now()));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PaymentService paymentService = new PaymentService(
+                paymentRepository,
+                orderRepository,
+                idempotencyKeyRepository,
+                mock(IdempotencyKeyFilter.class),
+                new PaymentReplayCache(meterRegistry, 1_000, Duration.ofMinutes(1)),
+                paymentSettlementPipeline,
+                paymentProcessorClient,
+                mock(OrderTransitionService.class),
+                new TransactionRetry(mock(PlatformTransactionManager.class), meterRegistry,
+                        1, Duration.ZERO, Duration.ZERO, Duration.ZERO),
+                meterRegistry);
+
+        String idempotencyKey = UUID.randomUUID().toString();
+        PaymentRequest request = new PaymentRequest(new BigDecimal("150.00"), "USD");
+        CyclicBarrier start = new CyclicBarrier(CONCURRENT_REQUESTS);
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        List<Future<PaymentResult>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    RequestContext.set(new AuthenticatedUser(CUSTOMER_ID, UserRole.CUSTOMER));
+                    try {
+                        start.await();
+                        return paymentService.processPayment(ORDER_ID, request, idempotencyKey);
+                    } finally {
+                        RequestContext.clear();
+                    }
+                }));
+            }
+            List<PaymentResult> results = new ArrayList<>();
+            for (Future<PaymentResult> future : futures) {
+                results.add(future.get());
+            }
+
+            assertThat(inserts.get()).isEqualTo(1);
+            assertThat(constraintViolations.get()).isZero();
+            assertThat(results).filteredOn(PaymentResult::isNewlyCreated).hasSize(1);
+            assertThat(results).filteredOn(result -> !result.isNewlyCreated()).hasSize(CONCURRENT_REQUESTS - 1);
+            assertThat(results).extracting(result -> result.paymentResponse().orderId()).containsOnly(ORDER_ID);
+            assertThat(results).extracting(result -> result.paymentResponse().paymentState()).containsOnly(PaymentState.COMPLETED);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.dev.order.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@Slf4j
+class TransactionRetryTest {
+    private static final int THREADS = 16;
+    private static final int TRANSACTIONS_PER_THREAD = 200;
+
+    @Test
+    void rerunsDeadlockVictimsUntilTheyCommit() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransactionRetry transactionRetry = retry(meterRegistry, 4);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = transactionRetry.execute("cancelOrder", status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw deadlock();
+            }
+            return "committed";
+        });
+
+        assertThat(result).isEqualTo("committed");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.counter("transactions.retries", "operation", "cancelOrder").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("transactions.retry.outcome", "operation", "cancelOrder", "outcome", "recovered")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry(meterRegistry, 3).execute("createOrder", status -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("Lock wait timeout exceeded",
+                    new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205));
+        })).isInstanceOf(CannotAcquireLockException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.counter("transactions.retry.outcome", "operation", "createOrder", "outcome", "exhausted")
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void failsFastOnErrorsThatARetryCannotFix() {
+        AtomicInteger attempts = new AtomicInteger();
+        TransactionRetry transactionRetry = retry(new SimpleMeterRegistry(), 4);
+
+        assertThatThrownBy(() -> transactionRetry.execute("processPayment", status -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("Duplicate entry for key 'idempotency_keys.PRIMARY'");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(attempts).hasValue(1);
+        assertThat(TransactionRetry.isRetryable(new ObjectOptimisticLockingFailureException("Order", 1L))).isFalse();
+        assertThat(TransactionRetry.isRetryable(new RuntimeException(
+                new SQLTransactionRollbackException("could not serialize access", "40001")))).isTrue();
+    }
+
+    /*
+     * Contention against an embedded database: every transaction takes SELECT ... FOR UPDATE on the same two
+     * rows in random order through a real DataSourceTransactionManager, so opposite-order pairs deadlock and
+     * the database rolls one of them back (or times its lock wait out), as InnoDB does.
+     * Compares the client-visible failure rate without and with retries.
+     * Run with: mvn test -Dstress=true -Dtest=TransactionRetryTest
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "stress", matches = "true")
+    void retriesLowerTheClientVisibleErrorRateUnderContention() throws Exception {
+        int withoutRetry = runContended(1);
+        int withRetry = runContended(4);
+        int total = THREADS * TRANSACTIONS_PER_THREAD;
+
+        log.info("Client-visible errors. withoutRetry={}/{}, withRetry={}/{}", withoutRetry, total, withRetry, total);
+        assertThat(withoutRetry).isPositive();
+        assertThat(withRetry).isLessThan(withoutRetry);
+    }
+
+    private static int runContended(int maxAttempts) throws Exception {
+        //A short lock wait timeout stands in for innodb_lock_wait_timeout should a cycle go undetected
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:contended-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=200");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE contended_rows (row_id BIGINT PRIMARY KEY, updates BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO contended_rows VALUES (1, 0), (2, 0)");
+        TransactionRetry transactionRetry = new TransactionRetry(new DataSourceTransactionManager(dataSource),
+                new SimpleMeterRegistry(), maxAttempts, Duration.ofMillis(1), Duration.ofMillis(20), Duration.ofSeconds(1));
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger committed = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+                        long first = ThreadLocalRandom.current().nextBoolean() ? 1 : 2;
+                        try {
+                            transactionRetry.execute("contended", status ->
+                                    lockBoth(jdbcTemplate, first, 3 - first));
+                            committed.incrementAndGet();
+                        } catch (RuntimeException ex) {
+                            if (!TransactionRetry.isRetryable(ex)) {
+                                throw ex;
+                            }
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        //Victims were rolled back whole: each row was updated exactly once per committed transaction
+        assertThat(jdbcTemplate.queryForList("SELECT updates FROM contended_rows", Long.class))
+                .containsOnly((long) committed.get());
+        return errors.get();
+    }
+
+    private static Void lockBoth(JdbcTemplate jdbcTemplate, long first, long second) {
+        jdbcTemplate.queryForObject("SELECT row_id FROM contended_rows WHERE row_id = ? FOR UPDATE", Long.class, first);
+        jdbcTemplate.update("UPDATE contended_rows SET updates = updates + 1 WHERE row_id = ?", first);
+        //Hold the first lock long enough for an opposite-order transaction to take the other row
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        jdbcTemplate.queryForObject("SELECT row_id FROM contended_rows WHERE row_id = ? FOR UPDATE", Long.class, second);
+        jdbcTemplate.update("UPDATE contended_rows SET updates = updates + 1 WHERE row_id = ?", second);
+        return null;
+    }
+
+    private static CannotAcquireLockException deadlock() {
+        return new CannotAcquireLockException("Deadlock found when trying to get lock",
+                new SQLException("Deadlock found when trying to get lock; try restarting transaction", "40001", 1213));
+    }
+
+    private static TransactionRetry retry(SimpleMeterRegistry meterRegistry, int maxAttempts) {
+        return new TransactionRetry(mock(PlatformTransactionManager.class), meterRegistry,
+                maxAttempts, Duration.ofMillis(1), Duration.ofMillis(20), Duration.ofSeconds(1));
+    }
+}